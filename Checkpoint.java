@@ -0,0 +1,326 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Контрольная точка работающей системы
+ * Компактный бинарный снимок: этаж и статус каждого лифта и все его невыполненные команды
+ *
+ * - Снимок пишется во временный файл, сбрасывается на диск и атомарно заменяет прежний:
+ *   при падении посреди записи остаётся предыдущая целая контрольная точка
+ * - Команда, которую лифт уже начал выполнять, сохраняется первой; если пассажир
+ *   уже в кабине, после рестарта он "садится" на этаже, где остановился лифт
+ * - Участки маршрутов с пересадкой сохраняются цепочкой
+ * - Объединённые вызовы сохраняются с числом пассажиров и всеми этажами назначения
+ * - Приоритет сохраняется у каждого участка (с версии 4; точки версии 3 читаются с обычным)
+ * - Пассажир верхней палубы двухэтажной кабины "садится" на этаже своей палубы (этаж выше позиции)
+ * - У маршрута сохраняется номер команды (с версии 5): следующий участок, уже отправленный
+ *   на другой лифт, но ещё числящийся за доставившим, восстанавливается один раз
+ * - Запросы, отложенные в общий пул диспетчера, сохраняются отдельным списком
+ */
+public final class Checkpoint implements Constants {
+
+    static final int MAGIC = 0x45434B50; // "ECKP"
+    static final short VERSION = 5;
+    private static final short VERSION_WITHOUT_SEQUENCE = 4;
+    private static final short VERSION_WITHOUT_PRIORITY = 3;
+
+    private static final Status[] STATUSES = Status.values();
+    private static final Command.Mode[] MODES = Command.Mode.values();
+
+    private final long createdMillis;
+    private final int maxFloors;
+    private final int[] floors;
+    private final Status[] statuses;
+    private final List<List<Command>> commands;
+    private final List<Command> deferred;
+
+    private Checkpoint(long createdMillis, int maxFloors, int elevatorCount) {
+        this.createdMillis = createdMillis;
+        this.maxFloors = maxFloors;
+        this.floors = new int[elevatorCount];
+        this.statuses = new Status[elevatorCount];
+        this.commands = new ArrayList<>(elevatorCount);
+        for (int i = 0; i < elevatorCount; i++) {
+            commands.add(new ArrayList<>());
+        }
+        this.deferred = new ArrayList<>();
+    }
+
+    // ГЕТТЕРЫ
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    public int getMaxFloors() {
+        return maxFloors;
+    }
+
+    public int getElevatorCount() {
+        return floors.length;
+    }
+
+    public int getFloor(int index) {
+        return floors[index];
+    }
+
+    public Status getStatus(int index) {
+        return statuses[index];
+    }
+
+    // Невыполненные команды лифта в порядке выполнения
+    public List<Command> getCommands(int index) {
+        return commands.get(index);
+    }
+
+    // Запросы общего пула диспетчера
+    public List<Command> getDeferred() {
+        return deferred;
+    }
+
+    public int getCommandCount() {
+        int total = deferred.size();
+        for (List<Command> list : commands) {
+            total += list.size();
+        }
+        return total;
+    }
+
+    // ЗАПИСЬ
+    public static void write(Path file, int maxFloors, Elevator[] elevators,
+                             Collection<Command> deferred) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (FileOutputStream fileStream = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileStream))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(maxFloors);
+            out.writeInt(elevators.length);
+
+            for (Elevator elevator : elevators) {
+                out.writeInt(elevator.getCurrentFloor());
+                out.writeByte(elevator.getStatus().ordinal());
+
+                List<Command> pending = pendingCommands(elevator);
+                out.writeInt(pending.size());
+                for (Command command : pending) {
+                    out.writeLong(command.getSequence());
+                    writeRoute(out, command);
+                }
+            }
+
+            List<Command> pool = new ArrayList<>(deferred);
+            out.writeInt(pool.size());
+            for (Command command : pool) {
+                out.writeLong(command.getSequence());
+                writeRoute(out, command);
+            }
+
+            out.flush();
+            fileStream.getFD().sync();
+        }
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Текущая команда (пассажир уже в кабине - посадка на текущем этаже),
+    // подсевшие к ней по пути пассажиры и очередь
+    private static List<Command> pendingCommands(Elevator elevator) {
+        // Очередь читается раньше текущей команды: команда, взятая из очереди между
+        // чтениями, попадёт в снимок дважды (убирается по номеру), но не потеряется
+        List<Command> queued = elevator.getQueuedCommands();
+        Command current = elevator.getCurrentCommand();
+        boolean onBoard = elevator.isPassengerOnBoard();
+        List<Command> riders = elevator.getRiders();
+
+        List<Command> pending = new ArrayList<>(queued.size() + riders.size() + 1);
+        Set<Long> seen = new HashSet<>();
+        int floor = elevator.getCurrentFloor();
+
+        if (current != null) {
+            seen.add(current.getSequence());
+            if (!onBoard) {
+                pending.add(current);
+            } else {
+                addBoarded(pending, current, floor + elevator.getDeck(current));
+            }
+        }
+
+        for (Command rider : riders) {
+            if (seen.add(rider.getSequence())) {
+                addBoarded(pending, rider, floor + elevator.getDeck(rider));
+            }
+        }
+
+        for (Command command : queued) {
+            if (seen.add(command.getSequence())) {
+                pending.add(command);
+            }
+        }
+        return pending;
+    }
+
+    // Команда пассажира в кабине: оставшиеся цели с этажа его палубы
+    private static void addBoarded(List<Command> pending, Command command, int floor) {
+        int[] remaining = remainingDestinations(command, floor);
+        if (remaining.length > 0) {
+            // Высаженных по пути пассажиров снимок не различает - число пассажиров сохраняется
+            Command boarded = new Command(floor, remaining[0]);
+            boarded.addPassengers(command.getPassengerCount() - 1, remaining);
+            boarded.setNextLeg(command.getNextLeg());
+            pending.add(boarded);
+        } else if (command.getNextLeg() != null) {
+            // Пассажир доставлен на этаж пересадки, но следующий участок ещё не отправлен
+            pending.add(command.getNextLeg());
+        }
+    }
+
+    // Этажи назначения, до которых лифт ещё не доехал
+    private static int[] remainingDestinations(Command command, int floor) {
+        int[] destinations = command.getDestinations();
+        int first = 0;
+        while (first < destinations.length &&
+               (command.getDirection() == UP ? destinations[first] <= floor : destinations[first] >= floor)) {
+            first++;
+        }
+        return Arrays.copyOfRange(destinations, first, destinations.length);
+    }
+
+    // Команда и все следующие участки маршрута
+    private static void writeRoute(DataOutputStream out, Command command) throws IOException {
+        int legs = 0;
+        for (Command leg = command; leg != null; leg = leg.getNextLeg()) {
+            legs++;
+        }
+
+        out.writeByte(legs);
+        for (Command leg = command; leg != null; leg = leg.getNextLeg()) {
+            out.writeByte(leg.getMode().ordinal());
+            out.writeInt(leg.getCallFloor());
+            out.writeInt(leg.getTargetFloor());
+            out.writeBoolean(leg.getDirection());
+            out.writeByte(leg.getPriority());
+
+            int[] destinations = leg.getDestinations();
+            out.writeInt(leg.getPassengerCount());
+            out.writeInt(destinations.length);
+            for (int floor : destinations) {
+                out.writeInt(floor);
+            }
+        }
+    }
+
+    // ЧТЕНИЕ
+    public static Checkpoint read(Path file) throws IOException {
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a checkpoint file: " + file);
+            }
+            short version = in.readShort();
+            if (version < VERSION_WITHOUT_PRIORITY || version > VERSION) {
+                throw new IOException("Unsupported checkpoint version " + version + ": " + file);
+            }
+            boolean withPriority = version >= VERSION_WITHOUT_SEQUENCE;
+            boolean withSequence = version >= VERSION;
+            Set<Long> restored = new HashSet<>(); // номера уже прочитанных маршрутов
+
+            long created = in.readLong();
+            int maxFloors = in.readInt();
+            int elevatorCount = in.readInt();
+            if (elevatorCount < 0 || elevatorCount > MAX_ELEVATORS) {
+                throw new IOException("Corrupted checkpoint: elevator count " + elevatorCount);
+            }
+
+            Checkpoint checkpoint = new Checkpoint(created, maxFloors, elevatorCount);
+            for (int i = 0; i < elevatorCount; i++) {
+                checkpoint.floors[i] = in.readInt();
+                checkpoint.statuses[i] = STATUSES[in.readByte()];
+
+                int pending = in.readInt();
+                for (int c = 0; c < pending; c++) {
+                    long sequence = withSequence ? in.readLong() : UNKNOWN_VALUE;
+                    Command command = readRoute(in, withPriority);
+                    if (command != null && (sequence == UNKNOWN_VALUE || restored.add(sequence))) {
+                        checkpoint.commands.get(i).add(command);
+                    }
+                }
+            }
+
+            int pool = in.readInt();
+            for (int c = 0; c < pool; c++) {
+                long sequence = withSequence ? in.readLong() : UNKNOWN_VALUE;
+                Command command = readRoute(in, withPriority);
+                if (command != null && (sequence == UNKNOWN_VALUE || restored.add(sequence))) {
+                    checkpoint.deferred.add(command);
+                }
+            }
+            return checkpoint;
+        }
+    }
+
+    // Все участки читаются целиком, даже если какой-то из них недействителен
+    private static Command readRoute(DataInputStream in, boolean withPriority) throws IOException {
+        int legs = in.readByte();
+        Command first = null;
+        Command previous = null;
+        boolean valid = true;
+
+        for (int l = 0; l < legs; l++) {
+            Command.Mode mode = MODES[in.readByte()];
+            int callFloor = in.readInt();
+            int targetFloor = in.readInt();
+            boolean direction = in.readBoolean();
+            int priority = withPriority ? in.readByte() : PRIORITY_NORMAL;
+
+            int passengers = in.readInt();
+            int destinationCount = in.readInt();
+            if (destinationCount < 0 || destinationCount > MAX_FLOORS) {
+                throw new IOException("Corrupted checkpoint: destination count " + destinationCount);
+            }
+            int[] destinations = new int[destinationCount];
+            for (int d = 0; d < destinationCount; d++) {
+                destinations[d] = in.readInt();
+            }
+
+            Command leg;
+            if (mode == Command.Mode.EXTERNAL) {
+                leg = new Command(callFloor, direction);
+                if (targetFloor != UNKNOWN_VALUE) {
+                    leg.setTargetFloor(targetFloor);
+                }
+            } else {
+                leg = new Command(callFloor, targetFloor);
+            }
+
+            if (passengers > 1 || destinationCount > 1) {
+                leg.addPassengers(passengers - 1, destinations);
+            }
+            leg.setPriority(priority);
+
+            valid &= leg.isValid();
+            if (previous == null) {
+                first = leg;
+            } else {
+                previous.setNextLeg(leg);
+            }
+            previous = leg;
+        }
+        return valid ? first : null;
+    }
+}
@@ -1,3 +1,6 @@
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
 public class Command implements Constants {
 
     public enum Mode {
@@ -5,131 +8,113 @@ public class Command implements Constants {
         INTERNAL // Вызов с этажа на конкретный этаж (упрощённый режим)
     }
 
+    // Сквозной номер команды (журнал, контрольные точки)
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final long sequence;
     private final Mode mode;
     private final int callFloor;
     private final boolean direction;
     private int targetFloor;
-    private boolean isValid;
-    private String validationError;
+    private CommandError error = CommandError.NONE;
+    private int rejectedTarget = UNKNOWN_VALUE; // цель, на которой сработала проверка (для текста ошибки)
+    private volatile Command nextLeg; // следующий участок маршрута (пересадка в sky lobby)
+    private volatile int priority = PRIORITY_NORMAL; // больше - важнее (вытеснение при перегрузке)
+
+    // Время поступления к диспетчеру по часам модели (ожидание пассажира), UNKNOWN_VALUE - ещё не поступила
+    private volatile long dispatchedMillis = UNKNOWN_VALUE;
+
+    // Объединённые вызовы с одного этажа в одну сторону (под монитором команды)
+    private int passengerCount = 1;
+    private TreeSet<Integer> extraDestinations; // цели присоединённых пассажиров, кроме targetFloor
+    private boolean boardingClosed;             // лифт начал выполнение - присоединять поздно
 
     // КОНСТРУКТОРЫ
 
     // EXTERNAL: вызов с этажа + направление (цель устанавливается позже)
     public Command(int callFloor, boolean direction) {
+        this.sequence = SEQUENCE.incrementAndGet();
         this.mode = Mode.EXTERNAL;
         this.callFloor = callFloor;
         this.direction = direction;
         this.targetFloor = UNKNOWN_VALUE;
-        this.validationError = null;
 
         validate();
     }
 
     // INTERNAL: вызов с этажа на конкретный этаж
     public Command(int callFloor, int targetFloor) {
+        this.sequence = SEQUENCE.incrementAndGet();
         this.mode = Mode.INTERNAL;
         this.callFloor = callFloor;
         this.targetFloor = targetFloor;
         this.direction = (targetFloor > callFloor);
-        this.validationError = null;
 
         validate();
     }
 
-    // ВАЛИДАЦИЯ
-    private void validate() {
-        this.isValid = true;
-
-        // Проверка callFloor
-        if (callFloor < MIN_FLOORS || callFloor > MAX_FLOORS) {
-            this.isValid = false;
-            this.validationError = "Call floor " + callFloor + " out of range [" +
-                    MIN_FLOORS + "-" + MAX_FLOORS + "]";
-            Logger.error("Command", validationError);
-            return;
-        }
-
-        // Для INTERNAL режима - проверка targetFloor
-        if (mode == Mode.INTERNAL) {
-            if (targetFloor < MIN_FLOORS || targetFloor > MAX_FLOORS) {
-                this.isValid = false;
-                this.validationError = "Target floor " + targetFloor + " out of range [" +
-                        MIN_FLOORS + "-" + MAX_FLOORS + "]";
-                Logger.error("Command", validationError);
-                return;
-            }
-
-            if (callFloor == targetFloor) {
-                this.isValid = false;
-                this.validationError = "Call floor and target floor cannot be the same (" + callFloor + ")";
-                Logger.error("Command", validationError);
-                return;
+    // Команда из упакованного вызова (CommandCode)
+    public static Command fromCode(long code) {
+        int callFloor = CommandCode.callFloor(code);
+        int targetFloor = CommandCode.targetFloor(code);
+        Command command;
+        if (!CommandCode.isExternal(code)) {
+            command = new Command(callFloor, targetFloor);
+        } else {
+            command = new Command(callFloor, CommandCode.direction(code));
+            if (command.isValid() && targetFloor != UNKNOWN_VALUE) {
+                command.setTargetFloor(targetFloor);
             }
         }
+        command.setPriority(CommandCode.priority(code));
+        return command;
+    }
 
-        // Для EXTERNAL режима - проверка логики направления
-        if (mode == Mode.EXTERNAL) {
-            // Нельзя ехать вверх с последнего этажа
-            if (direction == UP && callFloor == MAX_FLOORS) {
-                this.isValid = false;
-                this.validationError = "Cannot go UP from top floor (" + MAX_FLOORS + ")";
-                Logger.error("Command", validationError);
-                return;
-            }
+    // Упаковка в long с моментом поступления atMillis
+    public long toCode(long atMillis) {
+        long code = CommandCode.encode(mode == Mode.EXTERNAL, callFloor, targetFloor, direction, atMillis);
+        return CommandCode.withPriority(code, priority);
+    }
 
-            // Нельзя ехать вниз с первого этажа
-            if (direction == DOWN && callFloor == MIN_FLOORS) {
-                this.isValid = false;
-                this.validationError = "Cannot go DOWN from bottom floor (" + MIN_FLOORS + ")";
-                Logger.error("Command", validationError);
-                return;
-            }
+    // ВАЛИДАЦИЯ
+    // Проверка - код ошибки без строк и без логирования; текст собирается только при выводе
+    // Отказы считает и выводит диспетчер (RejectionStats), конструктор молчит
+    private void validate() {
+        this.error = CommandError.check(mode == Mode.EXTERNAL, callFloor, direction, targetFloor);
+        if (error != CommandError.NONE) {
+            this.rejectedTarget = targetFloor;
         }
     }
 
+    // Отказ на этапе диспетчера (здание, зоны, состояние системы); floor - этаж, на котором отказали
+    public void reject(CommandError reason, int floor) {
+        this.error = reason;
+        this.rejectedTarget = floor;
+    }
+
     // Установить целевой этаж (для EXTERNAL режима)
     public void setTargetFloor(int floor) {
         if (mode != Mode.EXTERNAL) {
-            Logger.warning("Command", "Cannot set target floor for INTERNAL command");
-            this.isValid = false;
-            this.validationError = "Cannot modify INTERNAL command";
-            return;
-        }
-
-        if (floor < MIN_FLOORS || floor > MAX_FLOORS) {
-            Logger.error("Command", "Invalid target floor: " + floor +
-                    " (must be " + MIN_FLOORS + "-" + MAX_FLOORS + ")");
-            this.isValid = false;
-            this.validationError = "Target floor out of range";
-            return;
-        }
-
-        if (floor == callFloor) {
-            Logger.error("Command", "Target floor cannot equal call floor (" + callFloor + ")");
-            this.isValid = false;
-            this.validationError = "Target equals call floor";
+            this.error = CommandError.NOT_EXTERNAL;
             return;
         }
 
-        // Проверка соответствия направлению
-        boolean correctDirection = (direction == UP && floor > callFloor) ||
-                (direction == DOWN && floor < callFloor);
-
-        if (!correctDirection) {
-            String expectedDir = direction ? "above" : "below";
-            Logger.error("Command", "Target floor " + floor + " must be " + expectedDir +
-                    " call floor " + callFloor + " for " + (direction ? "UP" : "DOWN") + " direction");
-            this.isValid = false;
-            this.validationError = "Target doesn't match direction";
+        CommandError result = CommandError.check(true, callFloor, direction, floor);
+        if (result != CommandError.NONE) {
+            this.error = result;
+            this.rejectedTarget = floor;
             return;
         }
 
         this.targetFloor = floor;
-        this.isValid = true;
-        this.validationError = null;
+        this.error = CommandError.NONE;
     }
 
     // ГЕТТЕРЫ
+    public long getSequence() {
+        return sequence;
+    }
+
     public Mode getMode() {
         return mode;
     }
@@ -155,17 +140,125 @@ public class Command implements Constants {
     }
 
     public boolean isValid() {
-        return isValid;
+        return error == CommandError.NONE;
+    }
+
+    public CommandError getError() {
+        return error;
     }
 
+    // Текст ошибки (строится при каждом вызове); null - команда корректна
     public String getValidationError() {
-        return validationError;
+        return error.describe(callFloor, rejectedTarget, direction);
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    // Слово приоритета: low | normal | high (без учёта регистра)
+    public static boolean isPriority(String word) {
+        return word.equalsIgnoreCase(PRIORITY_LOW_STR) || word.equalsIgnoreCase(PRIORITY_NORMAL_STR) ||
+               word.equalsIgnoreCase(PRIORITY_HIGH_STR);
+    }
+
+    // Вызывать после isPriority()
+    public static int parsePriority(String word) {
+        if (word.equalsIgnoreCase(PRIORITY_LOW_STR)) {
+            return PRIORITY_LOW;
+        }
+        return word.equalsIgnoreCase(PRIORITY_HIGH_STR) ? PRIORITY_HIGH : PRIORITY_NORMAL;
+    }
+
+    public long getDispatchedMillis() {
+        return dispatchedMillis;
+    }
+
+    public void setDispatchedMillis(long millis) {
+        this.dispatchedMillis = millis;
+    }
+
+    // ОБЪЕДИНЕНИЕ ВЫЗОВОВ
+    // Присоединение пассажиров другой команды; false - лифт уже начал выполнение
+    public synchronized boolean tryMerge(Command other) {
+        if (boardingClosed) {
+            return false;
+        }
+        addPassengers(other.getPassengerCount(), other.getDestinations());
+        // Общий вызов важен как самый важный из присоединившихся пассажиров
+        priority = Math.max(priority, other.getPriority());
+        return true;
+    }
+
+    // Пассажиры и их этажи назначения (объединение и восстановление из контрольной точки)
+    public synchronized void addPassengers(int count, int[] destinations) {
+        passengerCount += count;
+        for (int floor : destinations) {
+            if (floor == targetFloor) {
+                continue;
+            }
+            if (extraDestinations == null) {
+                extraDestinations = new TreeSet<>();
+            }
+            extraDestinations.add(floor);
+        }
+    }
+
+    // Закрытие посадки: вызывается лифтом, взявшим команду
+    public synchronized void closeBoarding() {
+        boardingClosed = true;
+    }
+
+    public synchronized int getPassengerCount() {
+        return passengerCount;
+    }
+
+    // Все этажи назначения в порядке движения (первым - ближайший к этажу вызова)
+    public synchronized int[] getDestinations() {
+        if (extraDestinations == null) {
+            return targetFloor == UNKNOWN_VALUE ? new int[0] : new int[] {targetFloor};
+        }
+
+        TreeSet<Integer> all = new TreeSet<>(extraDestinations);
+        if (targetFloor != UNKNOWN_VALUE) {
+            all.add(targetFloor);
+        }
+
+        int[] result = new int[all.size()];
+        int i = 0;
+        for (Integer floor : direction == UP ? all : all.descendingSet()) {
+            result[i++] = floor;
+        }
+        return result;
+    }
+
+    // МАРШРУТ С ПЕРЕСАДКАМИ
+    public Command getNextLeg() {
+        return nextLeg;
+    }
+
+    public void setNextLeg(Command nextLeg) {
+        this.nextLeg = nextLeg;
     }
 
     @Override
     public String toString() {
         String dir = direction ? UP_STR : DOWN_STR;
-        String validity = isValid ? "" : " [INVALID]";
+        String validity = isValid() ? "" : " [INVALID]";
+        if (nextLeg != null) {
+            validity += " [TRANSFER -> " + nextLeg.getTargetFloor() + "]";
+        }
+        int passengers = getPassengerCount();
+        if (passengers > 1) {
+            validity += " [PASSENGERS: " + passengers + ", STOPS: " + getDestinations().length + "]";
+        }
+        if (priority != PRIORITY_NORMAL) {
+            validity += priority > PRIORITY_NORMAL ? " [PRIORITY: HIGH]" : " [PRIORITY: LOW]";
+        }
 
         if (mode == Mode.EXTERNAL) {
             if (targetFloor == UNKNOWN_VALUE) {
@@ -0,0 +1,84 @@
+/**
+ * Команда, упакованная в одно число long
+ *
+ * Раскладка битов:
+ *   0-13   этаж вызова
+ *   14-27  этаж назначения + 1 (0 - цель ещё не задана)
+ *   28     направление (1 - вверх)
+ *   29     режим (1 - EXTERNAL)
+ *   30-31  приоритет + 1 (0 - PRIORITY_LOW, 1 - обычный, 2 - PRIORITY_HIGH)
+ *   32-63  момент поступления, мс от начала прогона (до ~49 суток)
+ *
+ * - Поток вызовов (пакетные прогоны, воспроизведение) хранится массивом long[]
+ *   без объекта на каждый вызов; Command создаётся только в момент dispatch()
+ * - check() проверяет упакованный вызов без распаковки в объект
+ */
+public final class CommandCode implements Constants {
+
+    private static final int FLOOR_BITS = 14;
+    private static final long FLOOR_MASK = (1L << FLOOR_BITS) - 1;
+    private static final int TARGET_SHIFT = FLOOR_BITS;
+    private static final int DIRECTION_SHIFT = 28;
+    private static final int MODE_SHIFT = 29;
+    private static final int PRIORITY_SHIFT = 30;
+    private static final long PRIORITY_MASK = 3;
+    private static final int TIME_SHIFT = 32;
+
+    public static final long MAX_AT_MILLIS = (1L << (64 - TIME_SHIFT)) - 1;
+
+    private CommandCode() {
+    }
+
+    // УПАКОВКА
+    // Этажи должны быть в [0, MAX_FLOORS] (MAX_FLOORS < 2^14), время - в [0, MAX_AT_MILLIS]
+    // Приоритет обычный; другой - через withPriority()
+    public static long encode(boolean external, int callFloor, int targetFloor, boolean direction, long atMillis) {
+        return (callFloor & FLOOR_MASK)
+                | ((targetFloor + 1) & FLOOR_MASK) << TARGET_SHIFT
+                | (direction == UP ? 1L : 0L) << DIRECTION_SHIFT
+                | (external ? 1L : 0L) << MODE_SHIFT
+                | (long) (PRIORITY_NORMAL - PRIORITY_LOW) << PRIORITY_SHIFT
+                | atMillis << TIME_SHIFT;
+    }
+
+    // Тот же вызов с приоритетом из [PRIORITY_LOW, PRIORITY_HIGH]
+    public static long withPriority(long code, int priority) {
+        return code & ~(PRIORITY_MASK << PRIORITY_SHIFT)
+                | (long) (priority - PRIORITY_LOW) << PRIORITY_SHIFT;
+    }
+
+    // INTERNAL вызов с этажа на этаж
+    public static long internal(int callFloor, int targetFloor, long atMillis) {
+        return encode(false, callFloor, targetFloor, targetFloor > callFloor, atMillis);
+    }
+
+    // РАСПАКОВКА
+    public static int callFloor(long code) {
+        return (int) (code & FLOOR_MASK);
+    }
+
+    public static int targetFloor(long code) {
+        return (int) (code >>> TARGET_SHIFT & FLOOR_MASK) - 1;
+    }
+
+    public static boolean direction(long code) {
+        return (code >>> DIRECTION_SHIFT & 1) == 1;
+    }
+
+    public static boolean isExternal(long code) {
+        return (code >>> MODE_SHIFT & 1) == 1;
+    }
+
+    public static int priority(long code) {
+        return (int) (code >>> PRIORITY_SHIFT & PRIORITY_MASK) + PRIORITY_LOW;
+    }
+
+    public static long atMillis(long code) {
+        return code >>> TIME_SHIFT;
+    }
+
+    // Проверка без создания команды
+    public static CommandError check(long code) {
+        return CommandError.check(isExternal(code), callFloor(code), direction(code), targetFloor(code));
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Код ошибки проверки команды
+ *
+ * - Проверка (check) не выделяет память и ничего не пишет в лог: только сравнения
+ * - Текст ошибки строится по запросу (describe), когда его действительно надо показать
+ * - Коды после WRONG_DIRECTION выставляет диспетчер: они зависят от здания и состояния системы
+ */
+public enum CommandError implements Constants {
+    NONE,
+    CALL_FLOOR_RANGE,   // этаж вызова вне [MIN_FLOORS-MAX_FLOORS]
+    TARGET_FLOOR_RANGE, // этаж назначения вне диапазона
+    SAME_FLOOR,         // этаж вызова совпадает с этажом назначения
+    UP_FROM_TOP,        // вверх с последнего этажа
+    DOWN_FROM_BOTTOM,   // вниз с первого этажа
+    NOT_EXTERNAL,       // цель меняют только у EXTERNAL команды
+    WRONG_DIRECTION,    // цель не соответствует направлению вызова
+    ABOVE_BUILDING,     // этаж выше последнего этажа здания
+    FLOOR_NOT_SERVED,   // этаж не обслуживает ни один лифт
+    NO_ROUTE,           // нет маршрута с пересадками между банками
+    NOT_RUNNING,        // система остановлена или лифтов нет
+    NULL_COMMAND;       // вместо команды передан null
+
+    // ПРОВЕРКА
+    // targetFloor = UNKNOWN_VALUE - цель ещё не задана (EXTERNAL до выбора этажа)
+    public static CommandError check(boolean external, int callFloor, boolean direction, int targetFloor) {
+        if (callFloor < MIN_FLOORS || callFloor > MAX_FLOORS) {
+            return CALL_FLOOR_RANGE;
+        }
+
+        if (external) {
+            if (direction == UP && callFloor == MAX_FLOORS) {
+                return UP_FROM_TOP;
+            }
+            if (direction == DOWN && callFloor == MIN_FLOORS) {
+                return DOWN_FROM_BOTTOM;
+            }
+            if (targetFloor == UNKNOWN_VALUE) {
+                return NONE;
+            }
+        }
+
+        if (targetFloor < MIN_FLOORS || targetFloor > MAX_FLOORS) {
+            return TARGET_FLOOR_RANGE;
+        }
+        if (targetFloor == callFloor) {
+            return SAME_FLOOR;
+        }
+        if (external && (targetFloor > callFloor) != (direction == UP)) {
+            return WRONG_DIRECTION;
+        }
+        return NONE;
+    }
+
+    // ТЕКСТ ОШИБКИ
+    public String describe(int callFloor, int targetFloor, boolean direction) {
+        switch (this) {
+            case CALL_FLOOR_RANGE:
+                return "Call floor " + callFloor + " out of range [" + MIN_FLOORS + "-" + MAX_FLOORS + "]";
+            case TARGET_FLOOR_RANGE:
+                return "Target floor " + targetFloor + " out of range [" + MIN_FLOORS + "-" + MAX_FLOORS + "]";
+            case SAME_FLOOR:
+                return "Call floor and target floor cannot be the same (" + callFloor + ")";
+            case UP_FROM_TOP:
+                return "Cannot go UP from top floor (" + MAX_FLOORS + ")";
+            case DOWN_FROM_BOTTOM:
+                return "Cannot go DOWN from bottom floor (" + MIN_FLOORS + ")";
+            case NOT_EXTERNAL:
+                return "Cannot modify INTERNAL command";
+            case WRONG_DIRECTION:
+                return "Target floor " + targetFloor + " must be " + (direction == UP ? "above" : "below") +
+                        " call floor " + callFloor + " for " + (direction == UP ? UP_STR : DOWN_STR) + " direction";
+            case ABOVE_BUILDING:
+                return "Floor " + targetFloor + " is above the top floor of the building";
+            case FLOOR_NOT_SERVED:
+                return "No elevator serves floor " + targetFloor;
+            case NO_ROUTE:
+                return "No transfer route from floor " + callFloor + " to floor " + targetFloor;
+            case NOT_RUNNING:
+                return "System not running";
+            case NULL_COMMAND:
+                return "Received null command";
+            default:
+                return null;
+        }
+    }
+}
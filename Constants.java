@@ -1,13 +1,17 @@
 public interface Constants {
     // Ограничения этажей
     public static final int MIN_FLOORS = 1;
-    public static final int MAX_FLOORS = 100;
-    public static final int DEFAULT_FLOORS = MAX_FLOORS / 2;
+    public static final int MAX_FLOORS = 10_000;
+    public static final int DEFAULT_FLOORS = 50;
 
     // Ограничения лифтов
     public static final int MIN_ELEVATORS = 1;
-    public static final int MAX_ELEVATORS = 20;
-    public static final int DEFAULT_ELEVATORS = MAX_ELEVATORS / 2;
+    public static final int MAX_ELEVATORS = 10_000;
+    public static final int DEFAULT_ELEVATORS = 10;
+    public static final long ELEVATOR_THREAD_STACK_SIZE = 256 * 1024;
+
+    // Зонирование
+    public static final int MIN_ZONE_FLOORS = 2;
 
     // Ограничения скорости
     public static final int MIN_SPEED = 1;
@@ -16,12 +20,110 @@ public interface Constants {
     public static final int MAX_DOOR_SPEED = 15;
     public static final int DEFAULT_DOOR_SPEED = MAX_DOOR_SPEED / 2;
 
+    // Кинематика
+    public static final double FLOOR_HEIGHT_METERS = 3.5;
+    public static final String LOCAL_PROFILE = "LOCAL";
+    public static final String EXPRESS_PROFILE = "EXPRESS";
+
+    // Энергия
+    public static final double GRAVITY = 9.81;
+    public static final double PASSENGER_MASS_KG = 75;
+    public static final double JOULES_PER_KWH = 3_600_000;
+    public static final int OFF_PEAK_START_HOUR = 22;
+    public static final int OFF_PEAK_END_HOUR = 7;
+
     // Бонусы и штрафы диспетчера
     public static final int FINE_TASK_COUNT = 100;
     public static final int FINE_FOR_DISTANCE_PER_FLOOR = 5;
     public static final int BONUS_IS_FREE_ELEVATOR = 200;
     public static final int BONUS_IS_ON_THE_WAY = 150;
     public static final int BONUS_IS_TRUE_FLOOR = 50;
+    public static final int FINE_FOR_TRAVEL_SECOND = 1;
+    public static final int FINE_FOR_KILOJOULE = 1;
+    public static final int BATCH_SCORING_MIN_FLEET = 64; // меньше - поэлементный расчёт
+
+    // Коллективное управление группой (GroupMode.COLLECTIVE)
+    public static final int PLAN_STOPS = 8;                   // ближайших остановок в плане лифта
+    public static final int BONUS_COMMITTED_STOP = 300;       // лифт уже остановится на этаже вызова
+    public static final int FINE_HEADWAY_PER_FLOOR = 10;      // сближение с соседними лифтами группы
+
+    // Двухэтажные кабины и шахты с двумя кабинами (ShaftMode)
+    public static final int BONUS_DECK_PAIRING = 200;         // вызов у второй палубы запланированной остановки
+    public static final int TWIN_SEPARATION_FLOORS = 1;       // минимальный зазор между кабинами шахты
+    public static final long TWIN_WAIT_MILLIS = 250;          // повтор шага, когда этаж занят соседкой
+
+    // Ключи весов (консоль, файл весов)
+    public static final String WEIGHT_TASK = "task";
+    public static final String WEIGHT_DISTANCE = "distance";
+    public static final String WEIGHT_FREE = "free";
+    public static final String WEIGHT_ON_THE_WAY = "onTheWay";
+    public static final String WEIGHT_TRUE_FLOOR = "trueFloor";
+    public static final String WEIGHT_TRAVEL = "travel";
+    public static final String WEIGHT_KILOJOULE = "kilojoule";
+
+    // Журнал решений диспетчера
+    public static final int JOURNAL_SEGMENT_BYTES = 4 * 1024 * 1024;
+    public static final long JOURNAL_FLUSH_MILLIS = 200;
+
+    // Допуск запросов (ограниченные очереди)
+    public static final int MIN_QUEUE_CAPACITY = 1;
+    public static final int MAX_QUEUE_CAPACITY = 10_000;
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+    public static final int PENDING_POOL_CAPACITY = 100_000;
+    public static final long PENDING_DRAIN_RETRY_MILLIS = 500; // повтор раздачи без сигнала лифта
+    public static final int HALL_CALL_WAIT_MILLIS = 500;
+    public static final long REJECTION_SUMMARY_MILLIS = 1000; // окно сводки по неверным запросам
+    public static final long WEIGHTS_SETTLE_MILLIS = 200; // тишина после правки файла весов до чтения
+    public static final int PRIORITY_LOW = -1;
+    public static final int PRIORITY_NORMAL = 0;
+    public static final int PRIORITY_HIGH = 1;
+
+    // Живая панель состояния (watch)
+    public static final int DASHBOARD_FPS = 10;
+    public static final int DASHBOARD_ROWS = 40;   // лифтов на экране
+    public static final String DASHBOARD = "DASHBOARD";
+
+    // Сетевой вход (ControlServer)
+    public static final int CONTROL_BUFFER_BYTES = 64 * 1024;       // и предел длины строки
+    public static final int CONTROL_MAX_PENDING_BYTES = 1024 * 1024; // больше - рассылка пропускается
+    public static final long CONTROL_STATE_INTERVAL_MILLIS = 100;
+    public static final String CONTROL = "CONTROL";
+    public static final String CONTROL_STATE = "state";
+    public static final String CONTROL_SUBSCRIBE = "subscribe";
+    public static final String CONTROL_UNSUBSCRIBE = "unsubscribe";
+    public static final String CONTROL_PING = "ping";
+    public static final String CONTROL_QUIT = "quit";
+
+    // Подбор весов (SweepRunner)
+    public static final int SWEEP_DEFAULT_RUNS = 200;
+    public static final int SWEEP_DEFAULT_FLOORS = 20;
+    public static final int SWEEP_DEFAULT_ELEVATORS = 4;
+    public static final int SWEEP_DEFAULT_REQUESTS = 60;
+    public static final long SWEEP_DEFAULT_INTERVAL_MILLIS = 8000;
+    public static final double SWEEP_DEFAULT_SPEEDUP = 200;
+    public static final int SWEEP_ELEVATOR_SPEED = 2;
+    public static final int SWEEP_DOOR_SPEED = 3;
+    public static final long SWEEP_POLL_MILLIS = 1000;
+    public static final long SWEEP_DRAIN_LIMIT_MILLIS = 3_600_000; // после последнего вызова
+    public static final String SWEEP = "SWEEP";
+    public static final String SWEEP_HEADER = "PARETO FRONT (wait / energy / trips)";
+
+    // Профилирование горячих путей (Profiler): корзины гистограммы - степени двойки наносекунд
+    public static final int PROFILE_BUCKETS = 40;
+
+    // Файловые приёмники лога (JsonLinesSink)
+    public static final int LOG_SINK_BUFFER_BYTES = 64 * 1024;
+    public static final int LOG_INPUT_BUFFER_CHARS = 256 * 1024; // буфер логов на время ввода команды
+    public static final long LOG_FLUSH_MILLIS = 200;
+    public static final long LOG_ROTATE_MILLIS = 3_600_000;
+    public static final long LOG_ROTATE_BYTES = 64L * 1024 * 1024;
+
+    // Детерминированный прогон (DeterministicRunner)
+    public static final String DETERMINISTIC_DEFAULT_LOG = "deterministic.log";
+    public static final String DETERMINISTIC_HEADER = "DETERMINISTIC RUN";
+
+    // Контрольные точки
+    public static final long CHECKPOINT_INTERVAL_MILLIS = 1000;
 
     // Направления движения
     public static final boolean UP = true;
@@ -44,6 +146,13 @@ public interface Constants {
     public static final String WHITE = "\u001B[97m";
     public static final String MAGENTA = "\u001B[35m";
 
+    // Управление терминалом (живая панель)
+    public static final String CLEAR_SCREEN = "\u001B[2J";
+    public static final String CLEAR_LINE = "\u001B[K";
+    public static final String HIDE_CURSOR = "\u001B[?25l";
+    public static final String SHOW_CURSOR = "\u001B[?25h";
+    public static final String CURSOR_TO = "\u001B[%d;1H";
+
     // Команды
     public static final String EXIT = "exit";
     public static final String RUN = "run";
@@ -51,6 +160,19 @@ public interface Constants {
     public static final String STATUS = "status";
     public static final String HELP = "help";
     public static final String INFO = "info";
+    public static final String REPLAY = "replay";
+    public static final String ENERGY = "energy";
+    public static final String WEIGHTS = "weights";
+    public static final String RELOAD = "reload";
+    public static final String WATCH = "watch";
+    public static final String STATS = "stats";
+    public static final String STATS_ON = "on";
+    public static final String STATS_OFF = "off";
+    public static final String STATS_RESET = "reset";
+    public static final String STATS_THREADS = "threads";
+    public static final String SCRIPT = "script";
+    public static final String STATEMENT_SEPARATOR = ";";
+    public static final String COMMENT_PREFIX = "#";
 
     // Уровни и источники логирования
     public static final String UI = "UI";
@@ -60,6 +182,8 @@ public interface Constants {
     public static final String DISPATCHER = "DISPATCH";
     public static final String MAIN = "MAIN";
     public static final String ELEVATOR = "ELEVATOR";
+    public static final String JOURNAL = "JOURNAL";
+    public static final String LOG = "LOG";
     public static final String WARN = "WARN";
     public static final String SUCCESS = "SUCCESS";
     public static final String ERROR = "ERROR";
@@ -68,12 +192,32 @@ public interface Constants {
     public static final String INTERNAL_MODE = "INTERNAL";
     public static final String EXTERNAL_MODE = "EXTERNAL";
 
+    // Аргументы командной строки
+    public static final String JOURNAL_ARG = "--journal";
+    public static final String CHECKPOINT_ARG = "--checkpoint";
+    public static final String ADMISSION_ARG = "--admission";
+    public static final String QUEUE_CAPACITY_ARG = "--queue-capacity";
+    public static final String BINDING_ARG = "--binding";
+    public static final String DISPATCH_ARG = "--dispatch";
+    public static final String GROUP_ARG = "--group";
+    public static final String SHAFT_ARG = "--shaft";
+    public static final String WEIGHTS_ARG = "--weights";
+    public static final String SCRIPT_ARG = "--script";
+    public static final String CONTROL_PORT_ARG = "--control-port";
+    public static final String LOG_JSON_ARG = "--log-json";
+    public static final String PROFILE_ARG = "--profile";
+
     // Строковое представление направлений
     public static final String UP_STR = "UP";
     public static final String UP_STR_LOW = "up";
     public static final String DOWN_STR = "DOWN";
     public static final String DOWN_STR_LOW = "down";
 
+    // Приоритет вызова в строке run и в трассе (необязательное последнее слово)
+    public static final String PRIORITY_LOW_STR = "low";
+    public static final String PRIORITY_NORMAL_STR = "normal";
+    public static final String PRIORITY_HIGH_STR = "high";
+
     // Заголовки для логов
     public static final String GENERAL_HEADER = "ELEVATOR CONTROL SYSTEM";
     public static final String SYSTEM_SETUP_HEADER = "ELEVATOR CONTROL SYSTEM SETUP";
@@ -81,4 +225,9 @@ public interface Constants {
     public static final String BUILDING_PARAMETERS_HEADER = "BUILDING PARAMETERS";
     public static final String ELEVATOR_STATUS_HEADER = "ELEVATOR STATUS";
     public static final String AVAILABLE_COMMANDS_HEADER = "AVAILABLE COMMANDS";
+    public static final String REPLAY_HEADER = "JOURNAL REPLAY";
+    public static final String ENERGY_HEADER = "ENERGY REPORT";
+    public static final String STATS_HEADER = "HOT PATH PROFILE";
+    public static final String WEIGHTS_HEADER = "SCORING WEIGHTS";
+    public static final String DASHBOARD_HEADER = "LIVE DASHBOARD (press Enter to return)";
 }
@@ -0,0 +1,358 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Сетевой вход для вызовов (шлюзы этажных панелей)
+ *
+ * - Один поток и один Selector на все соединения, слушает только localhost
+ * - Протокол текстовый, одна команда на строку (\n):
+ *     run <from> <to> | run <from> up|down <to>  ->  ok <sequence> | error <код CommandError> | error rejected
+ *       (последним словом можно указать приоритет: low | normal | high)
+ *     state                                      ->  car ... по каждому лифту, затем end
+ *     subscribe | unsubscribe                    ->  поток изменений состояния лифтов
+ *     ping                                       ->  pong
+ *     quit                                       ->  закрыть соединение
+ * - Конвейер: клиент шлёт сколько угодно строк не дожидаясь ответов; все строки пакета
+ *   разбираются подряд, ответы копятся и уходят одной записью, порядок сохраняется
+ * - Вызовы идут в тот же Dispatcher.dispatch(), что и из консоли
+ * - Подписчик получает строки car только по лифтам, изменившимся с прошлой рассылки
+ *   (то же упакованное состояние, что у живой панели); медленному клиенту рассылка
+ *   пропускается, пока он не разберёт накопленное
+ */
+public final class ControlServer implements Constants, AutoCloseable {
+
+    private static final Status[] STATUSES = Status.values();
+
+    // Состояние соединения (только поток сервера)
+    private static final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer input = ByteBuffer.allocate(CONTROL_BUFFER_BYTES);
+        final ArrayDeque<ByteBuffer> output = new ArrayDeque<>();
+        final StringBuilder replies = new StringBuilder();
+        int pendingBytes;
+        boolean closing;
+
+        // Подписка на состояние
+        long[] shown;
+        FleetState shownFleet;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private final Dispatcher dispatcher;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Thread thread;
+    private volatile boolean running;
+    private long nextBroadcast;
+
+    private ControlServer(Dispatcher dispatcher, int port) throws IOException {
+        this.dispatcher = dispatcher;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        this.thread = new Thread(this::serve, "Control-Server");
+        thread.setDaemon(true);
+    }
+
+    // Запуск на localhost:port; null - порт занят или недоступен
+    public static ControlServer start(Dispatcher dispatcher, int port) {
+        try {
+            ControlServer control = new ControlServer(dispatcher, port);
+            control.running = true;
+            control.thread.start();
+            Logger.info(CONTROL, "Listening on " + control.server.getLocalAddress());
+            return control;
+        } catch (IOException e) {
+            Logger.error(CONTROL, "Cannot listen on port " + port + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ЦИКЛ СЕРВЕРА
+    private void serve() {
+        try {
+            while (running) {
+                selector.select(CONTROL_STATE_INTERVAL_MILLIS);
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            if (key.isReadable()) {
+                                read(key);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                write(key);
+                            }
+                        }
+                    } catch (IOException e) {
+                        disconnect(key);
+                    }
+                }
+
+                long now = System.currentTimeMillis();
+                if (now >= nextBroadcast) {
+                    nextBroadcast = now + CONTROL_STATE_INTERVAL_MILLIS;
+                    broadcastState();
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            Logger.error(CONTROL, "Server stopped: " + e.getMessage());
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+        Logger.info(CONTROL, "Client connected: " + channel.getRemoteAddress());
+    }
+
+    private void disconnect(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // соединение уже разорвано
+        }
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            disconnect(key);
+        }
+        try {
+            selector.close();
+            server.close();
+        } catch (IOException e) {
+            Logger.error(CONTROL, "Cannot close server: " + e.getMessage());
+        }
+        Logger.info(CONTROL, "Control server closed");
+    }
+
+    // ЧТЕНИЕ И РАЗБОР
+    // Все полные строки пакета выполняются подряд, неполный хвост ждёт следующего пакета
+    private void read(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        ByteBuffer input = connection.input;
+
+        if (connection.channel.read(input) < 0) {
+            disconnect(key);
+            return;
+        }
+
+        input.flip();
+        int lineStart = input.position();
+        for (int i = input.position(); i < input.limit(); i++) {
+            if (input.get(i) == '\n') {
+                String line = new String(input.array(), lineStart, i - lineStart, StandardCharsets.US_ASCII);
+                execute(connection, line.trim());
+                lineStart = i + 1;
+                if (connection.closing) {
+                    break;
+                }
+            }
+        }
+        input.position(lineStart);
+        input.compact();
+
+        if (!input.hasRemaining()) {
+            connection.replies.append("error line too long\n");
+            connection.closing = true;
+        }
+        flushReplies(key, connection);
+    }
+
+    private void execute(Connection connection, String line) {
+        if (line.isEmpty()) {
+            return;
+        }
+        String[] parts = line.toLowerCase().split("\\s+");
+        StringBuilder replies = connection.replies;
+
+        switch (parts[0]) {
+            case RUN:
+                dispatchCall(parts, replies);
+                break;
+            case CONTROL_STATE:
+                appendState(dispatcher.getFleet(), replies);
+                replies.append("end\n");
+                break;
+            case CONTROL_SUBSCRIBE:
+                connection.shown = new long[0];
+                connection.shownFleet = null; // полный снимок при первой рассылке
+                replies.append("ok\n");
+                break;
+            case CONTROL_UNSUBSCRIBE:
+                connection.shown = null;
+                replies.append("ok\n");
+                break;
+            case CONTROL_PING:
+                replies.append("pong\n");
+                break;
+            case CONTROL_QUIT:
+                connection.closing = true;
+                break;
+            default:
+                replies.append("error unknown command ").append(parts[0]).append('\n');
+                break;
+        }
+    }
+
+    // run <from> <to> | run <from> up|down <to>, последним словом - low|normal|high
+    private void dispatchCall(String[] parts, StringBuilder replies) {
+        int priority = PRIORITY_NORMAL;
+        if (parts.length > 3 && Command.isPriority(parts[parts.length - 1])) {
+            priority = Command.parsePriority(parts[parts.length - 1]);
+            parts = Arrays.copyOf(parts, parts.length - 1);
+        }
+
+        Command command;
+        try {
+            if (parts.length == 3) {
+                command = new Command(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+            } else if (parts.length == 4 && (parts[2].equals(UP_STR_LOW) || parts[2].equals(DOWN_STR_LOW))) {
+                command = new Command(Integer.parseInt(parts[1]), parts[2].equals(UP_STR_LOW));
+                if (command.isValid()) {
+                    command.setTargetFloor(Integer.parseInt(parts[3]));
+                }
+            } else {
+                replies.append("error usage: run <from> <to> | run <from> up|down <to> [low|normal|high]\n");
+                return;
+            }
+        } catch (NumberFormatException e) {
+            replies.append("error invalid floor\n");
+            return;
+        }
+
+        // Неверный вызов отклоняет и учитывает диспетчер; в ответе - код причины без текста
+        command.setPriority(priority);
+        if (dispatcher.dispatch(command)) {
+            replies.append("ok ").append(command.getSequence()).append('\n');
+        } else if (command.getError() != CommandError.NONE) {
+            replies.append("error ").append(command.getError().name().toLowerCase()).append('\n');
+        } else {
+            replies.append("error rejected\n");
+        }
+    }
+
+    // ЗАПИСЬ
+    private void flushReplies(SelectionKey key, Connection connection) throws IOException {
+        if (connection.replies.length() > 0) {
+            byte[] bytes = connection.replies.toString().getBytes(StandardCharsets.US_ASCII);
+            connection.replies.setLength(0);
+            connection.output.add(ByteBuffer.wrap(bytes));
+            connection.pendingBytes += bytes.length;
+        }
+        write(key);
+    }
+
+    private void write(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        while (!connection.output.isEmpty()) {
+            ByteBuffer buffer = connection.output.peek();
+            connection.pendingBytes -= connection.channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+            connection.output.poll();
+        }
+
+        if (connection.closing) {
+            disconnect(key);
+        } else {
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    // СОСТОЯНИЕ ЛИФТОВ
+    // car <id> <floor> <moving|stopped|door_open> <up|down> <target> <queue>
+    private static void appendCar(StringBuilder out, int i, long packed) {
+        out.append("car ").append(i + 1)
+                .append(' ').append(Dashboard.floorOf(packed))
+                .append(' ').append(STATUSES[Dashboard.statusOf(packed)].name().toLowerCase())
+                .append(' ').append(Dashboard.isUp(packed) ? UP_STR_LOW : DOWN_STR_LOW)
+                .append(' ').append(Dashboard.targetOf(packed))
+                .append(' ').append(Dashboard.queueOf(packed))
+                .append('\n');
+    }
+
+    private static void appendState(FleetState fleet, StringBuilder out) {
+        for (int i = 0; i < fleet.size(); i++) {
+            appendCar(out, i, Dashboard.pack(fleet, i));
+        }
+    }
+
+    // Рассылка подписчикам: только изменившиеся лифты
+    private void broadcastState() {
+        FleetState fleet = dispatcher.getFleet();
+
+        for (SelectionKey key : selector.keys()) {
+            if (!(key.attachment() instanceof Connection) || !key.isValid()) {
+                continue;
+            }
+            Connection connection = (Connection) key.attachment();
+            if (connection.shown == null || connection.pendingBytes > CONTROL_MAX_PENDING_BYTES) {
+                continue;
+            }
+
+            if (connection.shownFleet != fleet) {
+                connection.shownFleet = fleet;
+                connection.shown = new long[fleet.size()];
+                Arrays.fill(connection.shown, -1);
+            }
+
+            long[] shown = connection.shown;
+            for (int i = 0; i < shown.length; i++) {
+                long packed = Dashboard.pack(fleet, i);
+                if (packed != shown[i]) {
+                    shown[i] = packed;
+                    appendCar(connection.replies, i, packed);
+                }
+            }
+
+            try {
+                flushReplies(key, connection);
+            } catch (IOException e) {
+                disconnect(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Живая панель состояния лифтов (команда watch)
+ *
+ * - Один поток отрисовки с фиксированной частотой кадров (DASHBOARD_FPS)
+ * - Состояние читается из массивов FleetState без локов: acquire-барьер и обычные чтения,
+ *   поэтому наблюдение за сотнями лифтов не тормозит их потоки
+ * - Строка лифта упаковывается в одно число long; перерисовываются только строки,
+ *   чьё число изменилось с прошлого кадра (курсор ставится ANSI-кодом на нужную строку)
+ * - Кадр собирается в один StringBuilder и выводится одной записью
+ * - Пока панель открыта, Logger копит события в буфере (как при вводе команды)
+ */
+public final class Dashboard implements Constants {
+
+    private static final Status[] STATUSES = Status.values();
+
+    // Строки экрана: заголовок (3), шапка таблицы, лифты, итог
+    private static final int FIRST_ROW = 5;
+
+    private final Dispatcher dispatcher;
+    private final PrintStream out;
+    private final int from;       // индекс первого лифта на экране
+
+    private volatile boolean running;
+    private Thread thread;
+
+    // Состояние экрана (только поток отрисовки)
+    private FleetState shownFleet;
+    private long[] shown;
+    private String[] names;
+    private long frames;
+
+    public Dashboard(Dispatcher dispatcher, PrintStream out, int from) {
+        this.dispatcher = dispatcher;
+        this.out = out;
+        this.from = Math.max(from, 0);
+    }
+
+    // ЗАПУСК И ОСТАНОВКА
+    public void start() {
+        running = true;
+        thread = new Thread(this::renderLoop, "Dashboard");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        int rows = shown == null ? 0 : shown.length;
+        out.print(String.format(CURSOR_TO, FIRST_ROW + rows + 2) + SHOW_CURSOR);
+        out.flush();
+    }
+
+    private void renderLoop() {
+        long frameNanos = 1_000_000_000L / DASHBOARD_FPS;
+        long next = System.nanoTime();
+        StringBuilder frame = new StringBuilder(4096);
+
+        while (running) {
+            frame.setLength(0);
+            renderFrame(frame);
+            out.print(frame);
+            out.flush();
+
+            next += frameNanos;
+            long sleepNanos = next - System.nanoTime();
+            if (sleepNanos <= 0) {
+                next = System.nanoTime(); // отстали - не догоняем пропущенные кадры
+                continue;
+            }
+            try {
+                Thread.sleep(sleepNanos / 1_000_000, (int) (sleepNanos % 1_000_000));
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    // КАДР
+    private void renderFrame(StringBuilder frame) {
+        FleetState fleet = dispatcher.getFleet();
+        if (fleet != shownFleet) {
+            redrawAll(frame, fleet);
+        }
+
+        int changed = 0;
+        for (int row = 0; row < shown.length; row++) {
+            int i = from + row;
+            long key = pack(fleet, i);
+            if (key != shown[row]) {
+                shown[row] = key;
+                moveTo(frame, FIRST_ROW + row);
+                appendRow(frame, i, key);
+                changed++;
+            }
+        }
+
+        frames++;
+        moveTo(frame, FIRST_ROW + shown.length + 1);
+        frame.append(GRAY).append(String.format(Locale.ROOT,
+                "Tasks: %d | Idle: %d/%d | Frame %d, rows redrawn: %d",
+                fleet.totalTaskCount(), fleet.idleCount(), fleet.size(), frames, changed))
+                .append(RESET).append(CLEAR_LINE);
+    }
+
+    // Полная перерисовка: первый кадр или новый парк (инициализация, replay)
+    private void redrawAll(StringBuilder frame, FleetState fleet) {
+        shownFleet = fleet;
+        int rows = Math.max(0, Math.min(DASHBOARD_ROWS, fleet.size() - from));
+
+        List<Elevator> elevators = dispatcher.getElevators();
+        shown = new long[rows];
+        names = new String[rows];
+        for (int row = 0; row < rows; row++) {
+            shown[row] = -1; // не совпадёт ни с одной упакованной строкой
+            names[row] = from + row < elevators.size()
+                    ? elevators.get(from + row).getProfile().getName() : "";
+        }
+
+        frame.append(HIDE_CURSOR).append(CLEAR_SCREEN);
+        moveTo(frame, 1);
+        frame.append(CYAN).append("═".repeat(70)).append(RESET).append('\n')
+                .append(CYAN).append(' ').append(DASHBOARD_HEADER).append(RESET).append('\n')
+                .append(CYAN).append("═".repeat(70)).append(RESET).append('\n')
+                .append(WHITE).append(String.format(Locale.ROOT, "   %-8s %-8s %6s   %-14s %6s",
+                        "Car", "Profile", "Floor", "State", "Queue")).append(RESET);
+        if (fleet.size() > from + rows) {
+            moveTo(frame, FIRST_ROW + rows);
+            frame.append(GRAY).append("   ... ").append(fleet.size() - from - rows)
+                    .append(" more (watch <first car>)").append(RESET);
+        }
+    }
+
+    // Упаковка строки: этаж (14 бит), цель (14), очередь (16), статус (2), направление, выполнение
+    // Гоночное чтение массивов; распаковку использует и сетевой сервер (ControlServer)
+    static long pack(FleetState fleet, int i) {
+        return (long) fleet.currentFloor[i]
+                | (long) fleet.targetFloor[i] << 14
+                | (long) Math.min(fleet.taskCount[i], 0xFFFF) << 28
+                | (long) fleet.status[i] << 44
+                | (long) fleet.direction[i] << 46
+                | (long) fleet.processing[i] << 47;
+    }
+
+    static int floorOf(long packed) {
+        return (int) (packed & 0x3FFF);
+    }
+
+    static int targetOf(long packed) {
+        return (int) (packed >>> 14 & 0x3FFF);
+    }
+
+    static int queueOf(long packed) {
+        return (int) (packed >>> 28 & 0xFFFF);
+    }
+
+    static int statusOf(long packed) {
+        return (int) (packed >>> 44 & 0x3);
+    }
+
+    static boolean isUp(long packed) {
+        return (packed >>> 46 & 1) == FleetState.TRUE;
+    }
+
+    private void appendRow(StringBuilder frame, int i, long key) {
+        int floor = floorOf(key);
+        int target = targetOf(key);
+        int queue = queueOf(key);
+        Status status = STATUSES[statusOf(key)];
+        boolean up = isUp(key);
+
+        String state;
+        String color;
+        if (status == Status.MOVING) {
+            state = (up ? "↑ " : "↓ ") + target;
+            color = GREEN;
+        } else if (status == Status.DOOR_OPEN) {
+            state = "doors open";
+            color = YELLOW;
+        } else {
+            state = "idle";
+            color = GRAY;
+        }
+
+        frame.append(String.format(Locale.ROOT, "   №%-7d %-8s %6d   ", i + 1, names[i - from], floor))
+                .append(color).append(String.format(Locale.ROOT, "%-14s", state)).append(RESET)
+                .append(String.format(Locale.ROOT, " %6s", queue > 0 ? queue : "-"))
+                .append(CLEAR_LINE);
+    }
+
+    private static void moveTo(StringBuilder frame, int row) {
+        frame.append(String.format(CURSOR_TO, row));
+    }
+}
@@ -0,0 +1,262 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Детерминированный прогон для сравнения вариантов диспетчера без шума
+ *
+ * - Часы виртуальные (VirtualClock): лифты и подача вызовов выполняются строго по очереди
+ *   событий, время модели перескакивает к ближайшему событию, а не ждёт реального
+ * - Поток вызовов - профиль пассажиропотока из генератора с заданным --seed
+ *   или готовая трасса (--trace: строки "<секунды> <откуда> <куда> [low|high]", # - комментарий)
+ * - Лог событий пишется в файл; метки времени в нём - время модели (и в JSON-логах --log-json)
+ * - Одинаковые seed, трасса и параметры дают побайтно одинаковый лог: в итоге печатается
+ *   его SHA-256, и два прогона сравниваются по одной строке
+ *
+ * Запуск: java DeterministicRunner [--seed N] [--traffic up_peak|down_peak|interfloor|mixed]
+ *                                  [--trace file] [--floors N] [--elevators N] [--requests N]
+ *                                  [--interval seconds] [--binding early|late]
+ *                                  [--group independent|collective]
+ *                                  [--shaft single|double-deck|twin] [--log file]
+ *                                  [--log-json [levels=]file]
+ */
+public final class DeterministicRunner implements Constants {
+
+    // Параметры прогона
+    private long seed = 1;
+    private TrafficProfile traffic = TrafficProfile.MIXED;
+    private String traceFile;
+    private int floors = SWEEP_DEFAULT_FLOORS;
+    private int elevators = SWEEP_DEFAULT_ELEVATORS;
+    private int requests = SWEEP_DEFAULT_REQUESTS;
+    private long intervalMillis = SWEEP_DEFAULT_INTERVAL_MILLIS;
+    private Dispatcher.BindingMode binding = Dispatcher.BindingMode.EARLY;
+    private Dispatcher.GroupMode group = Dispatcher.GroupMode.INDEPENDENT;
+    private Dispatcher.ShaftMode shaft = Dispatcher.ShaftMode.SINGLE;
+    private String logFile = DETERMINISTIC_DEFAULT_LOG;
+
+    // ПОТОК ВЫЗОВОВ
+    private long[] loadCalls() throws IOException {
+        if (traceFile == null) {
+            return traffic.generate(new Random(seed), floors, requests, intervalMillis);
+        }
+
+        List<String> lines = Files.readAllLines(Paths.get(traceFile), StandardCharsets.UTF_8);
+        long[] calls = new long[lines.size()];
+        int count = 0;
+        for (String line : lines) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith(COMMENT_PREFIX)) {
+                continue;
+            }
+            String[] parts = trimmed.split("\\s+");
+            if (parts.length != 3 && (parts.length != 4 || !Command.isPriority(parts[3]))) {
+                throw new IOException("Invalid trace line: " + trimmed);
+            }
+            long atMillis = (long) (Double.parseDouble(parts[0]) * 1000);
+            long call = CommandCode.internal(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), atMillis);
+            if (parts.length == 4) {
+                call = CommandCode.withPriority(call, Command.parsePriority(parts[3]));
+            }
+            calls[count++] = call;
+        }
+
+        // По возрастанию времени: оно в старших битах кода, поэтому порядок однозначен
+        long[] sorted = Arrays.copyOf(calls, count);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    // ПРОГОН
+    // Весь вывод Logger во время прогона уходит в лог-файл
+    private void run(long[] calls) throws IOException {
+        Path log = Paths.get(logFile);
+        VirtualClock clock = new VirtualClock();
+        PrintStream console = System.out;
+
+        double averageWaitSeconds;
+        double netKwh;
+        int trips;
+        int served;
+        int legs;
+        long rejected;
+        long joint;
+        int shafts;
+        boolean completed = false;
+        long virtualMillis;
+        long started = System.currentTimeMillis();
+
+        try (PrintStream out = new PrintStream(Files.newOutputStream(log), false, StandardCharsets.UTF_8)) {
+            System.setOut(out);
+            Logger.setClock(clock);
+            clock.enter();
+            try {
+                Dispatcher dispatcher = new Dispatcher();
+                dispatcher.setMaxFloors(floors);
+                dispatcher.setElevatorCount(elevators);
+                dispatcher.setElevatorsSpeed(SWEEP_ELEVATOR_SPEED);
+                dispatcher.setDoorsSpeed(SWEEP_DOOR_SPEED);
+                dispatcher.setShaftMode(shaft);
+                dispatcher.setBindingMode(binding);
+                dispatcher.setGroupMode(group);
+                dispatcher.setClock(clock);
+                dispatcher.initializeElevators();
+
+                try {
+                    for (long call : calls) {
+                        clock.sleep(CommandCode.atMillis(call) - clock.nowMillis());
+                        dispatcher.dispatch(Command.fromCode(call));
+                    }
+
+                    long deadline = clock.nowMillis() + SWEEP_DRAIN_LIMIT_MILLIS;
+                    while (clock.nowMillis() < deadline) {
+                        if (dispatcher.getServedPassengers() + dispatcher.getRejectedCount() +
+                            dispatcher.getRejections().getTotal() >= calls.length) {
+                            completed = true;
+                            break;
+                        }
+                        clock.sleep(SWEEP_POLL_MILLIS);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                averageWaitSeconds = dispatcher.getAverageWaitMillis() / 1000.0;
+                netKwh = (dispatcher.getConsumedJoules() - dispatcher.getRegeneratedJoules()) / JOULES_PER_KWH;
+                trips = dispatcher.getTripCount();
+                served = dispatcher.getServedPassengers();
+                legs = dispatcher.getServedLegs();
+                rejected = dispatcher.getRejectedCount() + dispatcher.getRejections().getTotal();
+                joint = dispatcher.getJointBoardingCount();
+                shafts = dispatcher.getShaftCount();
+                virtualMillis = clock.nowMillis();
+                dispatcher.shutdown();
+            } finally {
+                clock.exit();
+                Logger.closeSinks();
+                Logger.setClock(null);
+                System.setOut(console);
+            }
+        }
+
+        Logger.printHeader(DETERMINISTIC_HEADER);
+        Logger.print(String.format(Locale.ROOT, "%d calls (%s), %d floors, %d elevators in %d shafts (%s)",
+                calls.length, traceFile != null ? traceFile : traffic + ", seed " + seed,
+                floors, elevators, shafts, shaft));
+        Logger.print("Binding " + binding + ", group " + group);
+        Logger.print(String.format(Locale.ROOT, "Model time %.1fs, real time %.1fs%s",
+                virtualMillis / 1000.0, (System.currentTimeMillis() - started) / 1000.0,
+                completed ? "" : " (drain limit reached)"));
+        Logger.print(String.format(Locale.ROOT, "Served %d | Rejected %d | Wait %.1fs | %.3f kWh | %d trips",
+                served, rejected, averageWaitSeconds, netKwh, trips));
+        if (joint > 0) {
+            Logger.print("Boarded at planned stops: " + joint);
+        }
+        if (legs > served) {
+            Logger.print("Legs delivered: " + legs + " (passengers with transfers count once in Served)");
+        }
+        Logger.print("Log: " + log + " sha256 " + digest(log));
+        Logger.printSeparator();
+    }
+
+    private static String digest(Path file) throws IOException {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not available", e);
+        }
+    }
+
+    // Разбор аргументов; false - ошибка
+    private boolean parseArguments(String[] args) {
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String value = i + 1 < args.length ? args[i + 1] : null;
+                if (value == null) {
+                    Logger.print("Missing value after " + args[i]);
+                    return false;
+                }
+                switch (args[i++]) {
+                    case "--seed":
+                        seed = Long.parseLong(value);
+                        break;
+                    case "--traffic":
+                        traffic = TrafficProfile.valueOf(value.toUpperCase(Locale.ROOT));
+                        break;
+                    case "--trace":
+                        traceFile = value;
+                        break;
+                    case "--floors":
+                        floors = Integer.parseInt(value);
+                        break;
+                    case "--elevators":
+                        elevators = Integer.parseInt(value);
+                        break;
+                    case "--requests":
+                        requests = Integer.parseInt(value);
+                        break;
+                    case "--interval":
+                        intervalMillis = (long) (Double.parseDouble(value) * 1000);
+                        break;
+                    case "--binding":
+                        binding = Dispatcher.BindingMode.valueOf(value.toUpperCase(Locale.ROOT));
+                        break;
+                    case GROUP_ARG:
+                        group = Dispatcher.GroupMode.valueOf(value.toUpperCase(Locale.ROOT));
+                        break;
+                    case SHAFT_ARG:
+                        shaft = Dispatcher.ShaftMode.valueOf(value.toUpperCase(Locale.ROOT).replace('-', '_'));
+                        break;
+                    case "--log":
+                        logFile = value;
+                        break;
+                    case LOG_JSON_ARG:
+                        if (!JsonLinesSink.attach(value)) {
+                            return false;
+                        }
+                        break;
+                    default:
+                        Logger.print("Unknown argument: " + args[i - 1]);
+                        return false;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            Logger.print("Invalid value: " + e.getMessage());
+            return false;
+        }
+
+        if (floors < MIN_FLOORS + 1 || floors > MAX_FLOORS || elevators < MIN_ELEVATORS ||
+            elevators > MAX_ELEVATORS || requests < 1 || intervalMillis < 0) {
+            Logger.print("Invalid run parameters");
+            return false;
+        }
+        return true;
+    }
+
+    public static void main(String[] args) {
+        DeterministicRunner runner = new DeterministicRunner();
+        if (!runner.parseArguments(args)) {
+            return;
+        }
+
+        try {
+            runner.run(runner.loadCalls());
+        } catch (IOException | NumberFormatException e) {
+            Logger.print("Cannot run: " + e.getMessage());
+        }
+    }
+}
@@ -1,37 +1,238 @@
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Диспетчер системы управления лифтами
  * Распределяет запросы между лифтами
  *
  * Потокобезопасность:
- * - ConcurrentLinkedQueue для хранения лифтов
- * - Чтение состояния лифтов через volatile поля
+ * - массив лифтов публикуется через volatile ссылку после инициализации
+ * - состояние лифтов читается из массивов примитивов FleetState (struct-of-arrays),
+ *   выбор лифта - линейный проход по этим массивам
+ *
+ * Допуск запросов:
+ * - очереди лифтов ограничены, команда ставится без блокировки
+ * - если все подходящие очереди заполнены, действует политика допуска:
+ *   отказ с причиной, вытеснение самого низкоприоритетного запроса
+ *   или откладывание в общий пул, который раздаётся по мере освобождения очередей
+ *
+ * Позднее назначение (BindingMode.LATE):
+ * - вызовы не распределяются сразу, а ждут в HallCallPool по этажу и направлению
+ * - освободившийся лифт сам захватывает ближайший обслуживаемый вызов (CAS)
+ *
+ * Коллективное управление (GroupMode.COLLECTIVE):
+ * - лифты публикуют план ближайших остановок; вызов получает лифт, который и так
+ *   остановится на этом этаже в нужную сторону, и подсаживает пассажира по пути
+ * - штраф за сближение лифтов группы поддерживает интервалы между ними (GroupControl)
+ *
+ * Шахты (ShaftMode):
+ * - DOUBLE_DECK: двухэтажные кабины, одна остановка обслуживает два соседних этажа;
+ *   вызов у второй палубы уже запланированной остановки получает бонус; верхний этаж
+ *   здания - только из верхней палубы, первый - только из нижней
+ * - TWIN: две кабины в одной шахте (Shaft); кабина принимает работу, только если
+ *   её диапазон этажей не пересекается с работой соседки, шаги движения блокируются;
+ *   вызов между краями шахты - с пересадкой между кабинами (planRoute)
+ *
+ * Зонирование (sky lobby):
+ * - здание делится на зоны, каждую зону обслуживает свой банк лифтов
+ * - экспресс-лифты работают челноками между первым этажом и sky lobby зон
+ * - без экспресс-лифтов каждый банк ходит экспрессом с первого этажа в свою зону
+ * - если ни один банк не обслуживает оба этажа, маршрут строится с пересадками
  */
 
 public class Dispatcher implements Constants {
 
-    private final ConcurrentLinkedQueue<Elevator> elevators;
+    // Политика при заполненных очередях всех подходящих лифтов
+    public enum AdmissionPolicy {
+        REJECT,      // отказ с указанием причины
+        SHED_LOWEST, // вытеснение самого низкоприоритетного запроса
+        DEFER        // откладывание в общий пул до освобождения места
+    }
+
+    // Критерий выбора лифта
+    public enum DispatchMode {
+        TIME,     // ближайший по расстоянию и времени в пути
+        ENERGY,   // самый экономичный по энергии поездки
+        OFF_PEAK  // ENERGY в часы низкой нагрузки, иначе TIME
+    }
+
+    // Момент назначения лифта на вызов
+    public enum BindingMode {
+        EARLY, // лифт выбирается в dispatch() по текущему снимку парка
+        LATE   // вызов ждёт в общем пуле, освободившийся лифт забирает его сам
+    }
+
+    // Управление группой лифтов
+    public enum GroupMode {
+        INDEPENDENT, // каждый лифт оценивается сам по себе
+        COLLECTIVE   // учёт планов остановок и интервалов между лифтами группы
+    }
+
+    // Кабины в шахтах местных лифтов
+    public enum ShaftMode {
+        SINGLE,      // одна однопалубная кабина в шахте
+        DOUBLE_DECK, // двухэтажная кабина: остановка обслуживает этаж и этаж выше
+        TWIN         // две независимые кабины в одной шахте, друг над другом
+    }
+
+    private static final Status[] STATUSES = Status.values();
+
+    // Буфер счетов для пакетного расчёта (dispatch может вызываться из разных потоков)
+    private static final ThreadLocal<int[]> SCORE_BUFFER = ThreadLocal.withInitial(() -> new int[0]);
+
+    // Снимок кандидатов последнего выбора потока для журнала: номера лифтов и их счёт
+    // Пишется в журнал только после того, как выбранный лифт принял команду
+    private static final class Candidates {
+        long sequence = UNKNOWN_VALUE;
+        int[] ids = new int[0];
+        int[] scores = new int[0];
+        int count;
+    }
+
+    private static final ThreadLocal<Candidates> CANDIDATES = ThreadLocal.withInitial(Candidates::new);
+
+    private volatile Elevator[] elevators;
+    private volatile FleetState fleet;
+    private MotionProfile localProfile;   // общий для обычных кабин (таблица времени в пути)
+    private MotionProfile expressProfile;
     private final List<Thread> elevatorThreads;
     private volatile int maxFloors;
     private volatile int elevatorCount;
+    private volatile int expressCount;
+    private volatile int elevatorSpeed;
+    private volatile int doorsPeriod;
+    private volatile int zoneCount;
     private volatile Command.Mode commandMode;
     private volatile boolean isRunning;
 
+    // Банки лифтов: этажи, обслуживаемые каждым банком
+    private final List<BitSet> banks;
+
+    // Наборы этажей, доступные одной кабине без пересадки (маршруты planRoute):
+    // банк целиком или кабина шахты с двумя кабинами, не доходящая до края банка
+    private static final class Reach {
+        final BitSet floors;
+        final boolean twin;
+
+        Reach(BitSet floors, boolean twin) {
+            this.floors = floors;
+            this.twin = twin;
+        }
+    }
+
+    private final List<Reach> reaches;
+
+    // Журнал решений (null - выключен)
+    private volatile Path journalFile;
+    private volatile Journal journal;
+
+    // Допуск запросов
+    private volatile AdmissionPolicy admissionPolicy;
+    private volatile int queueCapacity;
+    private final ConcurrentLinkedDeque<Command> pendingPool;
+    private final AtomicInteger pendingCount;
+    private final Semaphore drainSignal; // лифт освободил место (реальные часы)
+    private Thread drainThread;
+    private final LongAdder rejectedCount;
+    private final RejectionStats rejections; // неверные запросы по причинам
+    private final LongAdder shedCount;
+    private final LongAdder deferredCount;
+    private final LongAdder reassignedCount;
+
+    // Объединение одинаковых вызовов: ожидающие EXTERNAL-вызовы по этажу и направлению
+    private final ConcurrentHashMap<Integer, OpenCall> openCalls;
+    private final LongAdder coalescedCount;
+
+    // Критерий выбора лифта и веса функции счёта
+    private volatile DispatchMode dispatchMode;
+    private volatile GroupMode groupMode;
+    private volatile ShaftMode shaftMode;
+    private volatile int shaftCount;
+    private final AtomicReference<ScoringWeights> weights;
+    private volatile Path weightsFile;
+    private WeightsWatcher weightsWatcher;
+
+    // Часы модели и метрики обслуживания
+    private volatile SimulationClock clock;
+    private final LongAdder waitMillisTotal;
+    private final LongAdder pickupCount;
+
+    // Позднее назначение: общий пул вызовов по этажу и направлению
+    private volatile BindingMode bindingMode;
+    private final HallCallPool hallCalls;
+    private final LongAdder claimedCount;
+    private final LongAdder passingPickupCount; // вызовы, забранные лифтом по пути к другому
+    private final LongAdder jointBoardingCount; // пассажиры, подсевшие на остановке плана (COLLECTIVE)
+
+    // Контрольные точки (null - выключены)
+    private volatile Path checkpointFile;
+    private Thread checkpointThread;
+    private final Object checkpointLock = new Object(); // одна запись файла за раз (общий .tmp)
+
     public Dispatcher() {
-        this.elevators = new ConcurrentLinkedQueue<>();
+        this.elevators = new Elevator[0];
+        this.fleet = new FleetState(0);
         this.elevatorThreads = new ArrayList<>();
         this.maxFloors = DEFAULT_FLOORS;
         this.elevatorCount = 0;
+        this.expressCount = 0;
+        this.elevatorSpeed = DEFAULT_ELEVATOR_SPEED;
+        this.doorsPeriod = DEFAULT_DOOR_SPEED;
+        this.zoneCount = 1;
         this.commandMode = Command.Mode.INTERNAL;
         this.isRunning = false;
+        this.banks = new ArrayList<>();
+        this.reaches = new ArrayList<>();
+        this.admissionPolicy = AdmissionPolicy.REJECT;
+        this.queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        this.pendingPool = new ConcurrentLinkedDeque<>();
+        this.pendingCount = new AtomicInteger();
+        this.drainSignal = new Semaphore(0);
+        this.rejectedCount = new LongAdder();
+        this.rejections = new RejectionStats();
+        this.shedCount = new LongAdder();
+        this.deferredCount = new LongAdder();
+        this.reassignedCount = new LongAdder();
+        this.openCalls = new ConcurrentHashMap<>();
+        this.coalescedCount = new LongAdder();
+        this.dispatchMode = DispatchMode.TIME;
+        this.groupMode = GroupMode.INDEPENDENT;
+        this.shaftMode = ShaftMode.SINGLE;
+        this.weights = new AtomicReference<>(ScoringWeights.defaults());
+        this.clock = SimulationClock.system();
+        this.waitMillisTotal = new LongAdder();
+        this.pickupCount = new LongAdder();
+        this.bindingMode = BindingMode.EARLY;
+        this.hallCalls = new HallCallPool();
+        this.claimedCount = new LongAdder();
+        this.passingPickupCount = new LongAdder();
+        this.jointBoardingCount = new LongAdder();
     }
 
     // ГЕТТЕРЫ И СЕТТЕРЫ
-    public ConcurrentLinkedQueue<Elevator> getElevators() {
-        return elevators;
+    public List<Elevator> getElevators() {
+        return Collections.unmodifiableList(Arrays.asList(elevators));
+    }
+
+    public FleetState getFleet() {
+        return fleet;
     }
 
     public int getMaxFloors() {
@@ -58,12 +259,90 @@ public class Dispatcher implements Constants {
         Logger.info(CONFIG, "Elevator count set to " + count);
     }
 
+    public int getElevatorCount() {
+        return elevatorCount;
+    }
+
+    public int getExpressCount() {
+        return expressCount;
+    }
+
+    // Экспресс-лифты получают последние номера
+    public void setExpressCount(int count) {
+        if (count < 0 || count > elevatorCount) {
+            Logger.error(DISPATCHER, "Invalid express elevator count: " + count +
+                        " (must be 0-" + elevatorCount + ")");
+            return;
+        }
+        this.expressCount = count;
+        Logger.info(CONFIG, "Express elevators set to " + count);
+    }
+
+    public int getElevatorsSpeed() {
+        return elevatorSpeed;
+    }
+
     public void setElevatorsSpeed(int speed) {
-        Elevator.setSpeed(speed);
+        if (speed < MIN_SPEED || speed > MAX_ELEVATOR_SPEED) {
+            Logger.error(CONFIG, "Invalid speed: " + speed);
+            return;
+        }
+        this.elevatorSpeed = speed;
+        Logger.info(CONFIG, "Elevator speed set to " + speed + " s/floor");
+    }
+
+    public int getDoorsSpeed() {
+        return doorsPeriod;
     }
 
     public void setDoorsSpeed(int period) {
-        Elevator.setOpenedDoorsPeriod(period);
+        if (period < MIN_SPEED || period > MAX_DOOR_SPEED) {
+            Logger.error(CONFIG, "Invalid door period: " + period);
+            return;
+        }
+        this.doorsPeriod = period;
+        Logger.info(CONFIG, "Door period set to " + period + "s");
+    }
+
+    public int getZoneCount() {
+        return zoneCount;
+    }
+
+    public void setZoneCount(int zones) {
+        int maxZones = getMaxZoneCount();
+        if (zones < 1 || zones > maxZones) {
+            Logger.error(DISPATCHER, "Invalid zone count: " + zones +
+                        " (must be 1-" + maxZones + ")");
+            return;
+        }
+        this.zoneCount = zones;
+        Logger.info(CONFIG, "Zone count set to " + zones);
+    }
+
+    // Каждой зоне нужен хотя бы один лифт и MIN_ZONE_FLOORS этажей
+    public int getMaxZoneCount() {
+        int localCount = elevatorCount - expressCount;
+        return Math.max(1, Math.min(localCount, maxFloors / MIN_ZONE_FLOORS));
+    }
+
+    // Профиль кабины по её номеру: один экземпляр на тип кабины, таблица времени в пути общая
+    private MotionProfile profileFor(int elevatorId) {
+        return elevatorId > elevatorCount - expressCount ? expressProfile : localProfile;
+    }
+
+    // Профили под текущие настройки здания (перед созданием кабин)
+    private void buildProfiles() {
+        localProfile = MotionProfile.legacy(elevatorSpeed, doorsPeriod);
+        expressProfile = MotionProfile.express();
+        localProfile.prepareTravelTable(maxFloors);
+        expressProfile.prepareTravelTable(maxFloors);
+    }
+
+    private EnergyModel energyModelFor(int elevatorId) {
+        if (elevatorId > elevatorCount - expressCount) {
+            return EnergyModel.express();
+        }
+        return EnergyModel.standard();
     }
 
     public Command.Mode getCommandMode() {
@@ -79,192 +358,1525 @@ public class Dispatcher implements Constants {
         return isRunning;
     }
 
-    // ИНИЦИАЛИЗАЦИЯ ЛИФТОВ
-    public void initializeElevators() {
-        if (isRunning) {
-            Logger.warning(DISPATCHER, "Elevators already running");
+    // Файл журнала задаётся до инициализации лифтов
+    public void setJournalFile(Path file) {
+        this.journalFile = file;
+        Logger.info(CONFIG, "Dispatch journal: " + file);
+    }
+
+    public Path getJournalFile() {
+        return journalFile;
+    }
+
+    public Journal getJournal() {
+        return journal;
+    }
+
+    public AdmissionPolicy getAdmissionPolicy() {
+        return admissionPolicy;
+    }
+
+    public void setAdmissionPolicy(AdmissionPolicy policy) {
+        this.admissionPolicy = policy;
+        Logger.info(CONFIG, "Admission policy set to " + policy);
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    // Ёмкость очереди каждого лифта задаётся до инициализации лифтов
+    public void setQueueCapacity(int capacity) {
+        if (capacity < MIN_QUEUE_CAPACITY || capacity > MAX_QUEUE_CAPACITY) {
+            Logger.error(CONFIG, "Invalid queue capacity: " + capacity +
+                        " (must be " + MIN_QUEUE_CAPACITY + "-" + MAX_QUEUE_CAPACITY + ")");
             return;
         }
+        this.queueCapacity = capacity;
+        Logger.info(CONFIG, "Elevator queue capacity set to " + capacity);
+    }
 
-        if (elevatorCount <= 0) {
-            Logger.error(DISPATCHER, "Elevator count not set");
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public long getShedCount() {
+        return shedCount.sum();
+    }
+
+    public long getDeferredCount() {
+        return deferredCount.sum();
+    }
+
+    public long getReassignedCount() {
+        return reassignedCount.sum();
+    }
+
+    public ScoringWeights getWeights() {
+        return weights.get();
+    }
+
+    // Атомарная подмена набора весов; решения, начатые со старым набором, его и дочитывают
+    public void setWeights(ScoringWeights newWeights) {
+        if (newWeights == null) {
+            Logger.error(CONFIG, "Scoring weights cannot be null");
             return;
         }
+        weights.set(newWeights);
+        Logger.info(CONFIG, "Scoring weights set to " + newWeights);
+    }
 
-        Logger.dispatcher("Initializing " + elevatorCount + " elevators...");
+    // Изменение отдельных весов из консоли (ключ=значение); одновременные правки не теряются
+    public boolean updateWeights(String[] assignments) {
+        try {
+            ScoringWeights updated = weights.updateAndGet(current -> current.with(assignments));
+            Logger.info(CONFIG, "Scoring weights set to " + updated);
+            return true;
+        } catch (IllegalArgumentException e) {
+            Logger.error(CONFIG, "Weights not changed: " + e.getMessage());
+            return false;
+        }
+    }
 
-        for (int i = 1; i <= elevatorCount; i++) {
-            Elevator elevator = new Elevator(i);
-            elevators.add(elevator);
+    public Path getWeightsFile() {
+        return weightsFile;
+    }
 
-            Thread thread = new Thread(elevator, "Elevator-" + i);
-            thread.setDaemon(false); // Не daemon - ждём завершения
-            elevatorThreads.add(thread);
-            thread.start();
-        }
+    // Файл весов: загрузка и слежение за изменениями
+    public void setWeightsFile(Path file) {
+        this.weightsFile = file;
+        loadWeights(file);
 
-        isRunning = true;
-        Logger.dispatcher("All " + elevatorCount + " elevators initialized and running");
+        if (weightsWatcher != null) {
+            weightsWatcher.close();
+        }
+        try {
+            weightsWatcher = WeightsWatcher.start(this, file);
+            Logger.info(CONFIG, "Watching weights file " + file);
+        } catch (IOException e) {
+            Logger.error(CONFIG, "Cannot watch weights file " + file + ": " + e.getMessage());
+        }
     }
 
-    // ОБРАБОТКА КОМАНД
-    public void dispatch(Command command) {
-        // Валидация команды
-        if (command == null) {
-            Logger.error(DISPATCHER, "Received null command");
-            return;
+    // Перечитывание файла: ключи поверх действующих весов (в том числе заданных из консоли),
+    // отсутствующие в файле ключи не меняются; при ошибке веса не меняются
+    public boolean loadWeights(Path file) {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+            ScoringWeights updated = weights.updateAndGet(current -> current.with(properties));
+            Logger.info(CONFIG, "Scoring weights set to " + updated);
+            return true;
+        } catch (IOException e) {
+            Logger.error(CONFIG, "Cannot read weights file " + file + ": " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            Logger.error(CONFIG, "Weights file " + file + " ignored: " + e.getMessage());
         }
+        return false;
+    }
 
-        if (!command.isValid()) {
-            Logger.error(DISPATCHER, "Cannot dispatch invalid command: " +
-                        command.getValidationError());
+    public SimulationClock getClock() {
+        return clock;
+    }
+
+    // Часы задаются до инициализации лифтов
+    public void setClock(SimulationClock clock) {
+        if (isRunning) {
+            Logger.error(CONFIG, "Clock cannot be changed while system is running");
             return;
         }
+        this.clock = clock;
+    }
 
-        // Проверка состояния системы
-        if (!isRunning) {
-            Logger.error(DISPATCHER, "System not running");
-            return;
+    // Вызывается лифтом при посадке: время ожидания от поступления запроса
+    void onPickup(Command command) {
+        long dispatched = command.getDispatchedMillis();
+        if (dispatched != UNKNOWN_VALUE) {
+            waitMillisTotal.add(clock.nowMillis() - dispatched);
+            pickupCount.increment();
         }
+    }
 
-        if (elevators.isEmpty()) {
-            Logger.error(DISPATCHER, "No elevators available");
-            return;
+    // Вызывается лифтом, подсадившим пассажира из своей очереди на остановке плана (COLLECTIVE)
+    void onJointBoarding(Elevator elevator, Command command) {
+        jointBoardingCount.increment();
+        onBoardingClosed(command);
+        onPickup(command);
+        Logger.dispatcher("Elevator №" + elevator.getID() + " boarded " + command + " at a planned stop");
+    }
+
+    // Среднее ожидание посадки (мс модели) по остановкам: объединённые вызовы - одна посадка
+    public double getAverageWaitMillis() {
+        long pickups = pickupCount.sum();
+        return pickups == 0 ? 0 : (double) waitMillisTotal.sum() / pickups;
+    }
+
+    public long getPickupCount() {
+        return pickupCount.sum();
+    }
+
+    public int getTripCount() {
+        int total = 0;
+        for (Elevator elevator : elevators) {
+            total += elevator.getTripCount();
         }
+        return total;
+    }
+
+    public DispatchMode getDispatchMode() {
+        return dispatchMode;
+    }
+
+    public void setDispatchMode(DispatchMode mode) {
+        this.dispatchMode = mode;
+        Logger.info(CONFIG, "Dispatch mode set to " + mode);
+    }
+
+    public GroupMode getGroupMode() {
+        return groupMode;
+    }
+
+    public boolean isCollective() {
+        return groupMode == GroupMode.COLLECTIVE;
+    }
+
+    public void setGroupMode(GroupMode mode) {
+        this.groupMode = mode;
+        Logger.info(CONFIG, "Group mode set to " + mode);
+    }
 
-        // Валидация этажей относительно настроек здания
-        if (command.getCallFloor() > maxFloors) {
-            Logger.error(DISPATCHER, "Call floor " + command.getCallFloor() +
-                        " exceeds max floors (" + maxFloors + ")");
+    public ShaftMode getShaftMode() {
+        return shaftMode;
+    }
+
+    // Тип шахт задаётся до инициализации лифтов
+    // Две кабины в шахте берут работу только через проверку диспетчера, поэтому без позднего назначения
+    public void setShaftMode(ShaftMode mode) {
+        if (isRunning) {
+            Logger.error(CONFIG, "Shaft mode cannot be changed while system is running");
             return;
         }
-
-        if (command.getMode() == Command.Mode.INTERNAL &&
-            command.getTargetFloor() > maxFloors) {
-            Logger.error(DISPATCHER, "Target floor " + command.getTargetFloor() +
-                        " exceeds max floors (" + maxFloors + ")");
+        if (mode == ShaftMode.TWIN && bindingMode == BindingMode.LATE) {
+            Logger.error(CONFIG, "Twin shafts are not available with late binding");
             return;
         }
+        this.shaftMode = mode;
+        Logger.info(CONFIG, "Shaft mode set to " + mode);
+    }
 
-        Logger.dispatcher("Received request: " + command);
+    // Число шахт: шахта с двумя кабинами считается один раз
+    public int getShaftCount() {
+        return shaftCount;
+    }
 
-        // Выбор оптимального лифта
-        Elevator selectedElevator = selectOptimalElevator(command);
+    // Учитывается ли сейчас энергия поездки вместо расстояния
+    public boolean isEnergyWeighted() {
+        switch (dispatchMode) {
+            case ENERGY:
+                return true;
+            case OFF_PEAK:
+                return isOffPeakHour(clock.timeOfDay().getHour());
+            default:
+                return false;
+        }
+    }
 
-        if (selectedElevator != null) {
-            selectedElevator.addCommand(command);
-            Logger.dispatcher("Assigned to Elevator №" + selectedElevator.getID());
-        } else {
-            Logger.error(DISPATCHER, "Failed to select elevator");
+    // Окно низкой нагрузки может переходить через полночь
+    private static boolean isOffPeakHour(int hour) {
+        if (OFF_PEAK_START_HOUR <= OFF_PEAK_END_HOUR) {
+            return hour >= OFF_PEAK_START_HOUR && hour < OFF_PEAK_END_HOUR;
         }
+        return hour >= OFF_PEAK_START_HOUR || hour < OFF_PEAK_END_HOUR;
     }
 
-    // Выбор оптимального лифта
-    private Elevator selectOptimalElevator(Command command) {
-        if (elevators.size() == 1) {
-            return elevators.peek();
+    // Энергия всего парка (Дж)
+    public double getConsumedJoules() {
+        double total = 0;
+        for (Elevator elevator : elevators) {
+            total += elevator.getConsumedJoules();
         }
+        return total;
+    }
 
-        int requestFloor = command.getCallFloor();
-        boolean requestDirection = command.getDirection();
+    public double getRegeneratedJoules() {
+        double total = 0;
+        for (Elevator elevator : elevators) {
+            total += elevator.getRegeneratedJoules();
+        }
+        return total;
+    }
 
-        Elevator bestElevator = null;
-        int bestScore = Integer.MIN_VALUE;
+    public int getServedPassengers() {
+        int total = 0;
+        for (Elevator elevator : elevators) {
+            total += elevator.getServedPassengers();
+        }
+        return total;
+    }
 
+    // Перевезено по участкам: пассажир с пересадками учитывается на каждом участке
+    public int getServedLegs() {
+        int total = 0;
         for (Elevator elevator : elevators) {
-            int score = calculateScore(elevator, requestFloor, requestDirection);
+            total += elevator.getServedLegs();
+        }
+        return total;
+    }
 
-            if (score > bestScore) {
-                bestScore = score;
-                bestElevator = elevator;
-            }
+    public BindingMode getBindingMode() {
+        return bindingMode;
+    }
+
+    public boolean isLateBinding() {
+        return bindingMode == BindingMode.LATE;
+    }
+
+    // Режим назначения задаётся до инициализации лифтов
+    public void setBindingMode(BindingMode mode) {
+        if (isRunning) {
+            Logger.error(CONFIG, "Binding mode cannot be changed while system is running");
+            return;
+        }
+        if (mode == BindingMode.LATE && shaftMode == ShaftMode.TWIN) {
+            Logger.error(CONFIG, "Late binding is not available with twin shafts");
+            return;
         }
+        this.bindingMode = mode;
+        Logger.info(CONFIG, "Binding mode set to " + mode);
+    }
 
-        return bestElevator;
+    public HallCallPool getHallCalls() {
+        return hallCalls;
     }
 
-    // Расчёт счета лифта для запроса
-    private int calculateScore(Elevator elevator, int requestFloor, boolean requestDirection) {
-        int score = 0;
+    public int getHallCallCount() {
+        return hallCalls.size();
+    }
 
-        // Штраф за количество задач в очереди
-        int taskCount = elevator.getTaskCount();
-        score -= taskCount * FINE_TASK_COUNT;
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
 
-        // Большой бонус за свободный лифт
-        if (elevator.getStatus() == Status.STOPPED && taskCount == 0 && !elevator.isProcessing()) {
-            score += BONUS_IS_FREE_ELEVATOR;
-        }
+    public long getClaimedCount() {
+        return claimedCount.sum();
+    }
 
-        // Штраф за расстояние
-        int distance = elevator.calculateDistance(requestFloor);
-        score -= distance * FINE_FOR_DISTANCE_PER_FLOOR;
+    public long getPassingPickupCount() {
+        return passingPickupCount.sum();
+    }
 
-        // Бонус если лифт движется в нужном направлении и запрос на пути
-        if (elevator.isOnTheWay(requestFloor, requestDirection)) {
-            score += BONUS_IS_ON_THE_WAY;
-        }
+    public long getJointBoardingCount() {
+        return jointBoardingCount.sum();
+    }
 
-        // Бонус если лифт на том же этаже
-        if (elevator.getCurrentFloor() == requestFloor) {
-            score += BONUS_IS_TRUE_FLOOR;
-        }
+    // Файл контрольных точек задаётся до инициализации лифтов
+    public void setCheckpointFile(Path file) {
+        this.checkpointFile = file;
+        Logger.info(CONFIG, "Checkpoint file: " + file);
+    }
 
-        return score;
+    public Path getCheckpointFile() {
+        return checkpointFile;
     }
 
-    // ЗАВЕРШЕНИЕ РАБОТЫ СИСТЕМЫ
-    public void shutdown() {
-        if (!isRunning) {
-            Logger.warning(DISPATCHER, "System not running");
+    // ИНИЦИАЛИЗАЦИЯ ЛИФТОВ
+    public void initializeElevators() {
+        if (isRunning) {
+            Logger.warning(DISPATCHER, "Elevators already running");
             return;
         }
 
-        Logger.dispatcher("Initiating shutdown sequence...");
-        isRunning = false;
+        if (elevatorCount <= 0) {
+            Logger.error(DISPATCHER, "Elevator count not set");
+            return;
+        }
 
-        // Прерываем все потоки лифтов
-        for (Thread thread : elevatorThreads) {
-            thread.interrupt();
+        Logger.dispatcher("Initializing " + elevatorCount + " elevators...");
+
+        buildBanks();
+        buildProfiles();
+
+        FleetState newFleet = new FleetState(elevatorCount);
+        Elevator[] newElevators = new Elevator[elevatorCount];
+
+        for (int i = 1; i <= elevatorCount; i++) {
+            Elevator elevator = new Elevator(i, profileFor(i), this, newFleet);
+            elevator.setEnergyModel(energyModelFor(i));
+            int bank = bankFor(i);
+            elevator.setServedFloors(banks.get(bank));
+            elevator.setDoubleDeck(shaftMode == ShaftMode.DOUBLE_DECK && i <= elevatorCount - expressCount);
+            newFleet.setBank(i - 1, bank);
+            newElevators[i - 1] = elevator;
         }
+        newFleet.indexBanks(banks.size());
+        List<Shaft> shafts = buildShafts(newElevators, newFleet);
+        buildReaches(newElevators);
 
-        // Ждём завершения потоков (максимум 3 секунды на каждый)
-        for (Thread thread : elevatorThreads) {
+        // Журнал открывается до старта потоков, чтобы попали все переходы
+        if (journalFile != null) {
             try {
-                thread.join(3000);
-                if (thread.isAlive()) {
-                    Logger.warning(DISPATCHER, thread.getName() + " did not stop in time");
-                }
-            } catch (InterruptedException e) {
-                Logger.error(DISPATCHER, "Interrupted while waiting for " + thread.getName());
-                Thread.currentThread().interrupt();
+                journal = Journal.create(journalFile, elevatorCount, maxFloors, clock);
+            } catch (IOException e) {
+                Logger.error(JOURNAL, "Cannot open journal " + journalFile + ": " + e.getMessage());
             }
         }
 
-        elevators.clear();
-        elevatorThreads.clear();
+        // Тёплый рестарт: позиции и очереди из последней контрольной точки
+        List<Command> orphans = restoreCheckpoint(newElevators, newFleet);
+        placeShafts(shafts, newFleet);
 
-        Logger.dispatcher("All elevators stopped. System shutdown complete.");
-    }
+        // Публикуем парк до старта потоков
+        this.fleet = newFleet;
+        this.elevators = newElevators;
 
-    // СТАТИСТИКА
-    // Общее количество задач во всех очередях
-    public int getTotalTaskCount() {
-        int total = 0;
-        for (Elevator e : elevators) {
-            total += e.getTaskCount();
+        for (Elevator elevator : newElevators) {
+            // Уменьшенный стек: тысячи потоков лифтов при стресс-моделировании
+            // Потоки создают часы: виртуальные ставят их в свою очередь событий
+            Thread thread = clock.newThread(elevator, "Elevator-" + elevator.getID(),
+                    ELEVATOR_THREAD_STACK_SIZE);
+            thread.setDaemon(false); // Не daemon - ждём завершения
+            elevatorThreads.add(thread);
+            thread.start();
         }
-        return total;
+
+        isRunning = true;
+        Logger.dispatcher("All " + elevatorCount + " elevators initialized and running");
+
+        // Команды лифтов, которых больше нет или которые не обслуживают этажи команды
+        for (Command command : orphans) {
+            dispatch(command);
+        }
+
+        startDrainThread();
+        startCheckpointThread();
     }
 
-    // Количество свободных лифтов
-    public int getIdleElevatorCount() {
-        int count = 0;
-        for (Elevator e : elevators) {
-            if (e.getStatus() == Status.STOPPED && e.getTaskCount() == 0 && !e.isProcessing()) {
-                count++;
+    // ШАХТЫ С ДВУМЯ КАБИНАМИ
+    // Пары соседних местных лифтов одного банка: нечётный - нижняя кабина, следующий - верхняя
+    // Нижняя не доезжает до верхних этажей банка, верхняя - до нижних (на величину зазора)
+    private List<Shaft> buildShafts(Elevator[] cars, FleetState state) {
+        List<Shaft> shafts = new ArrayList<>();
+        int localCount = elevatorCount - expressCount;
+        int pairs = 0;
+
+        for (int id = 1; shaftMode == ShaftMode.TWIN && id < localCount; id += 2) {
+            int bank = bankFor(id);
+            BitSet floors = banks.get(bank);
+            int bottom = floors.nextSetBit(0);
+            int top = floors.length() - 1;
+            if (bankFor(id + 1) != bank || top - bottom <= TWIN_SEPARATION_FLOORS) {
+                continue;
             }
+
+            BitSet lowerFloors = (BitSet) floors.clone();
+            lowerFloors.clear(top - TWIN_SEPARATION_FLOORS + 1, top + 1);
+            BitSet upperFloors = (BitSet) floors.clone();
+            upperFloors.clear(bottom, bottom + TWIN_SEPARATION_FLOORS);
+
+            Elevator lower = cars[id - 1];
+            Elevator upper = cars[id];
+            Shaft shaft = new Shaft(lower, upper, bottom, top);
+            lower.setServedFloors(lowerFloors);
+            upper.setServedFloors(upperFloors);
+            lower.setShaft(shaft);
+            upper.setShaft(shaft);
+
+            // Верхняя кабина стартует со своего конца шахты
+            state.setCurrentFloor(id, top);
+            state.setTargetFloor(id, top);
+            shafts.add(shaft);
+            pairs++;
+        }
+
+        shaftCount = elevatorCount - pairs;
+        if (pairs > 0) {
+            Logger.dispatcher(pairs + " twin shafts, " + shaftCount + " shafts in total");
         }
-        return count;
+        return shafts;
+    }
+
+    // Наборы этажей кабин без повторов: в режиме twin между нижней и верхней кабиной шахты
+    // появляется пересадка, остальные наборы совпадают с банками
+    // Двухэтажная кабина - два набора: нижняя палуба не бывает на верхнем этаже здания,
+    // верхняя - на первом, поездка между ними идёт с пересадкой
+    private void buildReaches(Elevator[] cars) {
+        reaches.clear();
+        for (Elevator car : cars) {
+            BitSet floors = car.getServedFloors();
+            if (car.isDoubleDeck()) {
+                BitSet lowerDeck = (BitSet) floors.clone();
+                lowerDeck.clear(maxFloors);
+                BitSet upperDeck = (BitSet) floors.clone();
+                upperDeck.clear(MIN_FLOORS);
+                addReach(lowerDeck, false);
+                addReach(upperDeck, false);
+            } else {
+                addReach(floors, car.getShaft() != null);
+            }
+        }
+    }
+
+    private void addReach(BitSet floors, boolean twin) {
+        for (Reach reach : reaches) {
+            if (reach.floors.equals(floors)) {
+                return;
+            }
+        }
+        reaches.add(new Reach(floors, twin));
+    }
+
+    // Позиции кабин после восстановления; кабины, оказавшиеся слишком близко, - по концам шахты
+    private void placeShafts(List<Shaft> shafts, FleetState state) {
+        for (Shaft shaft : shafts) {
+            int lower = shaft.getLower().getID() - 1;
+            int upper = shaft.getUpper().getID() - 1;
+            if (state.getCurrentFloor(lower) + TWIN_SEPARATION_FLOORS > state.getCurrentFloor(upper)) {
+                Logger.warning(DISPATCHER, "Elevators №" + (lower + 1) + " and №" + (upper + 1) +
+                        " restored too close in one shaft, moved to the shaft ends");
+                state.setCurrentFloor(lower, shaft.homeOf(shaft.getLower()));
+                state.setTargetFloor(lower, shaft.homeOf(shaft.getLower()));
+                state.setCurrentFloor(upper, shaft.homeOf(shaft.getUpper()));
+                state.setTargetFloor(upper, shaft.homeOf(shaft.getUpper()));
+            }
+            shaft.place(state.getCurrentFloor(lower), state.getCurrentFloor(upper));
+        }
+    }
+
+    // Постановка в очередь; кабина шахты с двумя кабинами - через проверку шахты
+    private boolean offerTo(Elevator elevator, Command command) {
+        Shaft shaft = elevator.getShaft();
+        return shaft == null ? elevator.offerCommand(command) : shaft.offer(elevator, command);
+    }
+
+    // КОНТРОЛЬНЫЕ ТОЧКИ
+    // Восстановление позиций и очередей; возвращает команды для повторного распределения
+    private List<Command> restoreCheckpoint(Elevator[] cars, FleetState state) {
+        List<Command> orphans = new ArrayList<>();
+        Path file = checkpointFile;
+        if (file == null || !Files.exists(file)) {
+            return orphans;
+        }
+
+        long startNanos = System.nanoTime();
+        Checkpoint checkpoint;
+        try {
+            checkpoint = Checkpoint.read(file);
+        } catch (IOException e) {
+            Logger.error(DISPATCHER, "Cannot read checkpoint " + file + ": " + e.getMessage());
+            return orphans;
+        }
+
+        for (int i = 0; i < checkpoint.getElevatorCount(); i++) {
+            List<Command> commands = checkpoint.getCommands(i);
+
+            if (i >= cars.length) {
+                orphans.addAll(commands);
+                continue;
+            }
+
+            // Лифт продолжает с последнего этажа, на котором стоял
+            int floor = Math.min(checkpoint.getFloor(i), maxFloors);
+            state.setCurrentFloor(i, floor);
+            state.setTargetFloor(i, floor);
+
+            for (Command command : commands) {
+                boolean served = cars[i].serves(command.getCallFloor()) &&
+                        (command.getTargetFloor() == UNKNOWN_VALUE || cars[i].serves(command.getTargetFloor()));
+                if (!served || !offerTo(cars[i], command)) {
+                    orphans.add(command);
+                } else {
+                    journalDispatch(command, cars[i]);
+                }
+            }
+        }
+
+        // Отложенные запросы общего пула распределяются заново
+        orphans.addAll(checkpoint.getDeferred());
+
+        long micros = (System.nanoTime() - startNanos) / 1000;
+        Logger.dispatcher("Restored checkpoint: " + checkpoint.getElevatorCount() + " elevators, " +
+                checkpoint.getCommandCount() + " pending commands (" + micros + " µs)");
+        return orphans;
+    }
+
+    // Периодическая запись контрольных точек
+    private void startCheckpointThread() {
+        if (checkpointFile == null) {
+            return;
+        }
+
+        // Интервал - время модели: при ускоренных часах точки пишутся так же часто по модели
+        checkpointThread = clock.newThread(() -> {
+            while (isRunning) {
+                try {
+                    clock.sleep(CHECKPOINT_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                writeCheckpoint();
+            }
+        }, "Checkpoint-Writer", 0);
+        checkpointThread.setDaemon(true);
+        checkpointThread.start();
+    }
+
+    // Запись и периодическим потоком, и при остановке: под локом, оба пишут один и тот же .tmp
+    private void writeCheckpoint() {
+        Path file = checkpointFile;
+        if (file == null) {
+            return;
+        }
+        synchronized (checkpointLock) {
+            try {
+                List<Command> deferred = new ArrayList<>(pendingPool);
+                deferred.addAll(hallCalls.snapshot());
+                Checkpoint.write(file, maxFloors, elevators, deferred);
+            } catch (IOException e) {
+                Logger.error(DISPATCHER, "Cannot write checkpoint " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // ЗОНИРОВАНИЕ
+    // Построение банков лифтов по числу зон
+    private void buildBanks() {
+        banks.clear();
+
+        if (zoneCount <= 1) {
+            BitSet all = new BitSet(maxFloors + 1);
+            all.set(MIN_FLOORS, maxFloors + 1);
+            addBank(all, "All floors");
+            return;
+        }
+
+        int floorsPerZone = maxFloors / zoneCount;
+        BitSet shuttle = new BitSet(maxFloors + 1);
+        shuttle.set(MIN_FLOORS);
+
+        for (int zone = 0; zone < zoneCount; zone++) {
+            int start = zone * floorsPerZone + 1;
+            int end = (zone == zoneCount - 1) ? maxFloors : (zone + 1) * floorsPerZone;
+
+            BitSet floors = new BitSet(maxFloors + 1);
+            floors.set(start, end + 1);
+
+            if (expressCount > 0) {
+                // Нижний этаж зоны - sky lobby, туда ходят экспресс-челноки
+                shuttle.set(start);
+            } else {
+                // Экспресс-банк: лифты зоны ходят без остановок с первого этажа
+                floors.set(MIN_FLOORS);
+            }
+            addBank(floors, "Zone " + (zone + 1) + ": floors " + start + "-" + end);
+        }
+
+        if (expressCount > 0) {
+            addBank(shuttle, "Sky lobby shuttle: floors " + shuttle);
+        }
+    }
+
+    private void addBank(BitSet floors, String description) {
+        banks.add(floors);
+        Logger.dispatcher("Bank " + banks.size() + " - " + description);
+    }
+
+    // Банк лифта по номеру: локальные лифты делятся между зонами поровну
+    private int bankFor(int elevatorId) {
+        if (zoneCount <= 1) {
+            return 0;
+        }
+        int localCount = elevatorCount - expressCount;
+        if (elevatorId > localCount) {
+            return zoneCount; // банк экспресс-челноков
+        }
+        return (elevatorId - 1) * zoneCount / localCount;
+    }
+
+    // Обслуживает ли этаж хотя бы один лифт
+    public boolean isFloorServed(int floor) {
+        for (BitSet bank : banks) {
+            if (bank.get(floor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Маршрут по наборам этажей кабин (поиск в ширину): первый участок, остальные через getNextLeg()
+    // Пересадка между банками - на общем этаже, ближайшем к цели участка; между кабинами одной
+    // шахты - в середине общих этажей: обеим кабинам нужна только своя половина шахты
+    private Command planRoute(Command command) {
+        int from = command.getCallFloor();
+        int to = command.getTargetFloor();
+
+        if (to == UNKNOWN_VALUE || reaches.size() == 1) {
+            return command;
+        }
+
+        int reachCount = reaches.size();
+        int[] previous = new int[reachCount];
+        boolean[] visited = new boolean[reachCount];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+
+        for (int r = 0; r < reachCount; r++) {
+            if (reaches.get(r).floors.get(from)) {
+                if (reaches.get(r).floors.get(to)) {
+                    return command; // пересадка не нужна
+                }
+                visited[r] = true;
+                previous[r] = UNKNOWN_VALUE;
+                queue.add(r);
+            }
+        }
+
+        int goal = UNKNOWN_VALUE;
+        while (!queue.isEmpty() && goal == UNKNOWN_VALUE) {
+            int current = queue.poll();
+            for (int next = 0; next < reachCount; next++) {
+                if (visited[next] || !reaches.get(current).floors.intersects(reaches.get(next).floors)) {
+                    continue;
+                }
+                visited[next] = true;
+                previous[next] = current;
+                if (reaches.get(next).floors.get(to)) {
+                    goal = next;
+                    break;
+                }
+                queue.add(next);
+            }
+        }
+
+        if (goal == UNKNOWN_VALUE) {
+            return null;
+        }
+
+        // Восстанавливаем цепочку наборов и этажи пересадок с конца маршрута
+        Command leg = null;
+        int legTarget = to;
+        for (int r = goal; previous[r] != UNKNOWN_VALUE; r = previous[r]) {
+            Reach before = reaches.get(previous[r]);
+            Reach after = reaches.get(r);
+            int transferFloor = before.twin && after.twin
+                    ? middleCommonFloor(before.floors, after.floors)
+                    : nearestCommonFloor(before.floors, after.floors, legTarget);
+            Command next = new Command(transferFloor, legTarget);
+            next.setNextLeg(leg);
+            leg = next;
+            legTarget = transferFloor;
+        }
+
+        Command first = new Command(from, legTarget);
+        first.setNextLeg(leg);
+
+        // Участки маршрута наследуют приоритет исходного запроса
+        for (Command l = first; l != null; l = l.getNextLeg()) {
+            l.setPriority(command.getPriority());
+        }
+        return first;
+    }
+
+    // Средний из общих этажей двух наборов
+    private int middleCommonFloor(BitSet a, BitSet b) {
+        BitSet common = (BitSet) a.clone();
+        common.and(b);
+        return nearestCommonFloor(a, b, (common.nextSetBit(0) + common.length() - 1) / 2);
+    }
+
+    // Общий этаж двух банков, ближайший к заданному
+    private int nearestCommonFloor(BitSet a, BitSet b, int floor) {
+        BitSet common = (BitSet) a.clone();
+        common.and(b);
+
+        int best = UNKNOWN_VALUE;
+        for (int f = common.nextSetBit(0); f >= 0; f = common.nextSetBit(f + 1)) {
+            if (best == UNKNOWN_VALUE || Math.abs(f - floor) < Math.abs(best - floor)) {
+                best = f;
+            }
+        }
+        return best;
+    }
+
+    // ПРОВЕРКА ЗАПРОСА
+    // Сначала собственная проверка команды, затем здание и состояние системы
+    // Ничего не логирует; отказ по зданию записывается в команду (getValidationError)
+    public CommandError validate(Command command) {
+        if (command == null) {
+            return CommandError.NULL_COMMAND;
+        }
+        if (!command.isValid()) {
+            return command.getError();
+        }
+
+        CommandError error = CommandError.NONE;
+        int floor = UNKNOWN_VALUE;
+        int target = command.getTargetFloor();
+
+        if (!isRunning || elevators.length == 0) {
+            error = CommandError.NOT_RUNNING;
+        } else if (command.getCallFloor() > maxFloors) {
+            error = CommandError.ABOVE_BUILDING;
+            floor = command.getCallFloor();
+        } else if (target > maxFloors) {
+            error = CommandError.ABOVE_BUILDING;
+            floor = target;
+        } else if (!isFloorServed(command.getCallFloor())) {
+            error = CommandError.FLOOR_NOT_SERVED;
+            floor = command.getCallFloor();
+        } else if (target != UNKNOWN_VALUE && !isFloorServed(target)) {
+            error = CommandError.FLOOR_NOT_SERVED;
+            floor = target;
+        }
+
+        if (error != CommandError.NONE) {
+            command.reject(error, floor);
+        }
+        return error;
+    }
+
+    public RejectionStats getRejections() {
+        return rejections;
+    }
+
+    // ОБРАБОТКА КОМАНД
+    // true - команда поставлена в очередь лифта или отложена в общий пул
+    // Полная задержка обработки - замер DISPATCH и событие JFR CommandDispatched
+    public boolean dispatch(Command command) {
+        return dispatch(command, false);
+    }
+
+    // Следующий участок маршрута пассажира, уже доставленного на этаж пересадки:
+    // при перегрузке участок не отклоняется и не вытесняется, а откладывается в общий пул
+    // false - участок потерян (неверный или пул заполнен), отказ уже учтён и записан в лог
+    boolean dispatchTransfer(Command leg) {
+        return dispatch(leg, true);
+    }
+
+    private boolean dispatch(Command command, boolean transfer) {
+        LifecycleEvents.Dispatched event = new LifecycleEvents.Dispatched();
+        event.begin();
+        long start = Profiler.start();
+        boolean accepted = process(command, transfer);
+        Profiler.stop(Profiler.Probe.DISPATCH, start);
+
+        if (command != null && event.shouldCommit()) {
+            event.sequence = command.getSequence();
+            event.callFloor = command.getCallFloor();
+            event.targetFloor = command.getTargetFloor();
+            event.up = command.getDirection() == UP;
+            event.accepted = accepted;
+            event.rejection = accepted || command.getError() == CommandError.NONE
+                    ? null : command.getError().name();
+            event.commit();
+        }
+        return accepted;
+    }
+
+    private boolean process(Command command, boolean transfer) {
+        // Единая проверка: отказ считается по причине, лог - сводками (RejectionStats)
+        CommandError error = validate(command);
+        if (error != CommandError.NONE) {
+            rejections.record(error, command, clock.nowMillis());
+            return false;
+        }
+
+        Logger.dispatcher("Received request: " + command);
+
+        // Маршрут с пересадками, если ни один банк не обслуживает оба этажа
+        Command route = planRoute(command);
+        if (route == null) {
+            command.reject(CommandError.NO_ROUTE, command.getTargetFloor());
+            rejections.record(CommandError.NO_ROUTE, command, clock.nowMillis());
+            return false;
+        }
+
+        if (route != command) {
+            Logger.dispatcher("Transfer route: " + route);
+            command = route;
+        }
+
+        // Отсчёт ожидания пассажира по часам модели
+        if (command.getDispatchedMillis() == UNKNOWN_VALUE) {
+            command.setDispatchedMillis(clock.nowMillis());
+        }
+
+        // Такой же вызов ещё ждёт лифта - пассажиры присоединяются к нему
+        if (coalesce(command)) {
+            return true;
+        }
+
+        // Позднее назначение: лифт заберёт вызов из пула сам
+        if (bindingMode == BindingMode.LATE) {
+            if (!publishHallCall(command)) {
+                return false;
+            }
+            registerOpenCall(command, null);
+            return true;
+        }
+
+        // Выбор оптимального лифта среди лифтов со свободным местом в очереди
+        Elevator selectedElevator = selectOptimalElevator(command);
+
+        if (selectedElevator != null && offerTo(selectedElevator, command)) {
+            journalDispatch(command, selectedElevator);
+            Logger.dispatcher("Assigned to Elevator №" + selectedElevator.getID());
+            registerOpenCall(command, selectedElevator);
+            return true;
+        }
+
+        // Пассажир пересадки уже в здании: только ожидание места, политика допуска не действует
+        return transfer ? defer(command) : admit(command);
+    }
+
+    // ОБЪЕДИНЕНИЕ ВЫЗОВОВ
+    // Ожидающий лифта EXTERNAL-вызов: команда и лифт, в чьей очереди она стоит (null - в пуле)
+    private static final class OpenCall {
+        final Command command;
+        final Elevator elevator;
+
+        OpenCall(Command command, Elevator elevator) {
+            this.command = command;
+            this.elevator = elevator;
+        }
+    }
+
+    private static int hallKey(Command command) {
+        return command.getCallFloor() * 2 + (command.getDirection() == UP ? 1 : 0);
+    }
+
+    // Вызов с этажа в ту же сторону, что и ожидающий, становится ещё одним пассажиром
+    // той же остановки; маршруты с пересадкой не объединяются
+    private boolean coalesce(Command command) {
+        if (command.getMode() != Command.Mode.EXTERNAL || command.getNextLeg() != null) {
+            return false;
+        }
+
+        int key = hallKey(command);
+        OpenCall open = openCalls.get(key);
+        if (open == null || !canCarry(open, command)) {
+            return false;
+        }
+
+        Shaft shaft = open.elevator != null ? open.elevator.getShaft() : null;
+        boolean merged = shaft != null
+                ? shaft.merge(open.elevator, open.command, command)
+                : open.command.tryMerge(command);
+        if (!merged) {
+            // Лифт уже взял вызов - запись устарела
+            openCalls.remove(key, open);
+            return false;
+        }
+
+        coalescedCount.increment();
+        Logger.dispatcher("Coalesced " + command + " into #" + open.command.getSequence() +
+                " (passengers: " + open.command.getPassengerCount() + ")");
+        return true;
+    }
+
+    // Лифт ожидающего вызова (или хотя бы один банк при позднем назначении) обслуживает новые цели
+    private boolean canCarry(OpenCall open, Command command) {
+        int[] destinations = command.getDestinations();
+        if (open.elevator != null) {
+            for (int floor : destinations) {
+                if (!open.elevator.serves(floor)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int[] current = open.command.getDestinations();
+        for (BitSet bank : banks) {
+            if (bank.get(command.getCallFloor()) && containsAll(bank, current) &&
+                containsAll(bank, destinations)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsAll(BitSet bank, int[] floors) {
+        for (int floor : floors) {
+            if (!bank.get(floor)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void registerOpenCall(Command command, Elevator elevator) {
+        if (command.getMode() == Command.Mode.EXTERNAL && command.getNextLeg() == null) {
+            openCalls.putIfAbsent(hallKey(command), new OpenCall(command, elevator));
+        }
+    }
+
+    // Вызывается лифтом, взявшим команду: посадка закрыта, новые пассажиры ждут следующий лифт
+    void onBoardingClosed(Command command) {
+        command.closeBoarding();
+        OpenCall open = openCalls.get(hallKey(command));
+        if (open != null && open.command == command) {
+            openCalls.remove(hallKey(command), open);
+        }
+    }
+
+    // ПОЗДНЕЕ НАЗНАЧЕНИЕ
+    private boolean publishHallCall(Command command) {
+        if (!hallCalls.publish(command)) {
+            rejectedCount.increment();
+            Logger.error(DISPATCHER, "Rejected " + command + ": hall call pool is full");
+            return false;
+        }
+        Logger.dispatcher("Published hall call (pending: " + hallCalls.size() + ")");
+        clock.unpark(hallCalls);
+        stopPassingCar(command);
+        return true;
+    }
+
+    // Ближайший лифт, едущий пустым в сторону вызова и ещё не проехавший его этаж,
+    // получает остановку на этом этаже (слот перенацеливания, без локов)
+    // Лифт должен быть хотя бы за этаж до вызова: на текущем отрезке он уже не затормозит
+    private void stopPassingCar(Command command) {
+        int floor = command.getCallFloor();
+        boolean direction = command.getDirection();
+        int step = direction == UP ? 1 : -1;
+        FleetState state = fleet;
+
+        Elevator best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < state.size; i++) {
+            if (STATUSES[state.status[i]] != Status.MOVING ||
+                (state.direction[i] == FleetState.TRUE) != direction) {
+                continue;
+            }
+            int distance = (floor - state.currentFloor[i]) * step;
+            if (distance < 1 || (state.targetFloor[i] - floor) * step <= 0 || distance >= bestDistance) {
+                continue;
+            }
+            Elevator car = elevators[i];
+            if (car.isApproaching() && car.servesLeg(command)) {
+                best = car;
+                bestDistance = distance;
+            }
+        }
+
+        if (best != null && best.retarget(floor)) {
+            Logger.dispatcher("Elevator №" + best.getID() + " will stop at floor " + floor + " on the way");
+        }
+    }
+
+    // Вызывается лифтом, остановленным по пути: он забирает вызов этого этажа,
+    // а свой прежний вызов возвращает в пул. null - вызов уже забрал другой лифт
+    Command claimPassingCall(Elevator elevator, Command current, int floor) {
+        Command passing = hallCalls.claimAt(floor, elevator.getDirection(), elevator);
+        if (passing == null) {
+            return null;
+        }
+        onHallCallClaimed(elevator, passing);
+        passingPickupCount.increment();
+
+        // Место в пуле освободил захват; если его уже заняли, прежний вызов теряется с ошибкой
+        if (!hallCalls.publish(current)) {
+            rejectedCount.increment();
+            Logger.error(DISPATCHER, "Lost " + current + ": hall call pool is full");
+        } else {
+            Logger.dispatcher("Returned " + current + " to hall calls (pending: " + hallCalls.size() + ")");
+            clock.unpark(hallCalls);
+        }
+        return passing;
+    }
+
+    // Вызывается лифтом, захватившим вызов из пула
+    void onHallCallClaimed(Elevator elevator, Command command) {
+        claimedCount.increment();
+        LifecycleEvents.Queued.emit(elevator.getID(), command, 0, true);
+        Logger.dispatcher("Elevator №" + elevator.getID() + " claimed " + command);
+
+        Journal currentJournal = journal;
+        if (currentJournal != null) {
+            currentJournal.recordDispatch(command, elevator.getID(), null, null, 0);
+        }
+    }
+
+    // ДОПУСК ПРИ ПЕРЕГРУЗКЕ
+    // Все подходящие очереди заполнены - решение по политике допуска
+    private boolean admit(Command command) {
+        switch (admissionPolicy) {
+            case SHED_LOWEST:
+                return shedLowest(command);
+
+            case DEFER:
+                return defer(command);
+
+            default:
+                rejectedCount.increment();
+                Logger.error(DISPATCHER, "Rejected " + command + ": all eligible elevator queues are full");
+                return false;
+        }
+    }
+
+    // Вытеснение самого низкоприоритетного запроса (им может оказаться и новый)
+    private boolean shedLowest(Command command) {
+        Elevator victimOwner = null;
+        Command victim = null;
+
+        for (Elevator elevator : elevators) {
+            if (!elevator.servesLeg(command)) {
+                continue;
+            }
+            Command lowest = elevator.findLowestPriorityCommand();
+            if (lowest != null && (victim == null || lowest.getPriority() < victim.getPriority())) {
+                victim = lowest;
+                victimOwner = elevator;
+            }
+        }
+
+        shedCount.increment();
+
+        if (victim == null || victim.getPriority() >= command.getPriority()) {
+            Logger.warning(DISPATCHER, "Shed " + command + ": lowest priority while all queues are full");
+            return false;
+        }
+
+        // Посадка закрывается до снятия: к вытесненному вызову никто не присоединится
+        onBoardingClosed(victim);
+        if (!victimOwner.removeCommand(victim)) {
+            Logger.warning(DISPATCHER, "Shed " + command + ": lowest priority while all queues are full");
+            return false;
+        }
+        Journal currentJournal = journal;
+        if (currentJournal != null) {
+            currentJournal.recordWithdraw(victim);
+        }
+
+        if (!offerTo(victimOwner, command)) {
+            // Место успели занять - вытесненный запрос возвращается, если получится
+            if (offerTo(victimOwner, victim)) {
+                journalDispatch(victim, victimOwner);
+            }
+            Logger.warning(DISPATCHER, "Shed " + command + ": queue of Elevator №" +
+                        victimOwner.getID() + " refilled concurrently");
+            return false;
+        }
+
+        journalDispatch(command, victimOwner);
+        Logger.warning(DISPATCHER, "Shed " + victim + " in favour of " + command +
+                    " (Elevator №" + victimOwner.getID() + ")");
+        return true;
+    }
+
+    // Откладывание в общий пул до освобождения места в очередях
+    private boolean defer(Command command) {
+        if (pendingCount.incrementAndGet() > PENDING_POOL_CAPACITY) {
+            pendingCount.decrementAndGet();
+            rejectedCount.increment();
+            Logger.error(DISPATCHER, "Rejected " + command + ": pending pool is full");
+            return false;
+        }
+
+        pendingPool.offerLast(command);
+        registerOpenCall(command, null);
+        deferredCount.increment();
+        Logger.dispatcher("Deferred " + command + " (pending: " + pendingCount.get() + ")");
+        return true;
+    }
+
+    // Вызывается лифтом, когда он берёт команду из очереди: только сигнал потоку раздачи,
+    // сам лифт на раздачу (счёт кандидатов по всему пулу) не задерживается
+    void onCapacityFreed() {
+        if (pendingCount.get() == 0) {
+            return;
+        }
+        if (clock.isVirtual()) {
+            clock.unpark(pendingPool);
+        } else {
+            drainSignal.release();
+        }
+    }
+
+    // Поток раздачи отложенных запросов: по сигналу лифта и раз в PENDING_DRAIN_RETRY_MILLIS
+    // (место могло освободиться без сигнала, например в шахте с двумя кабинами)
+    private void startDrainThread() {
+        drainThread = clock.newThread(() -> {
+            while (isRunning) {
+                try {
+                    if (clock.isVirtual()) {
+                        clock.park(pendingPool, PENDING_DRAIN_RETRY_MILLIS);
+                    } else if (drainSignal.tryAcquire(PENDING_DRAIN_RETRY_MILLIS, TimeUnit.MILLISECONDS)) {
+                        drainSignal.drainPermits();
+                    }
+                } catch (InterruptedException e) {
+                    break;
+                }
+                if (pendingCount.get() > 0) {
+                    drainPendingPool();
+                }
+            }
+        }, "Pending-Drain", 0);
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    // Один проход по пулу: запрос, которому сейчас нет места (например, вся его зона занята),
+    // пропускается и не задерживает запросы других зон; пропущенные возвращаются в голову пула
+    private void drainPendingPool() {
+        List<Command> skipped = new ArrayList<>();
+        int remaining = pendingCount.get();
+        Command command;
+        while (remaining-- > 0 && (command = pendingPool.pollFirst()) != null) {
+            // Присоединение к отложенному вызову (tryMerge под тем же монитором) ждёт выбора лифта:
+            // лифт выбирается по всем целям, после постановки посадка закрыта
+            Elevator elevator;
+            synchronized (command) {
+                elevator = selectOptimalElevator(command);
+                if (elevator == null || !offerTo(elevator, command)) {
+                    skipped.add(command);
+                    continue;
+                }
+                onBoardingClosed(command);
+            }
+            journalDispatch(command, elevator);
+            pendingCount.decrementAndGet();
+            reassignedCount.increment();
+            Logger.dispatcher("Reassigned deferred " + command + " to Elevator №" + elevator.getID());
+        }
+
+        for (int k = skipped.size() - 1; k >= 0; k--) {
+            pendingPool.offerFirst(skipped.get(k));
+        }
+    }
+
+    // Выбор оптимального лифта (время счёта - замер SCORING)
+    private Elevator selectOptimalElevator(Command command) {
+        long start = Profiler.start();
+        Elevator selected = scoreCandidates(command);
+        Profiler.stop(Profiler.Probe.SCORING, start);
+        return selected;
+    }
+
+    // Кандидаты - только лифты банков, обслуживающих этаж вызова и все этажи назначения
+    private Elevator scoreCandidates(Command command) {
+        Elevator[] cars = elevators;
+
+        int requestFloor = command.getCallFloor();
+        int[] destinations = command.getDestinations();
+        boolean requestDirection = command.getDirection();
+
+        // Маска банков, подходящих для участка
+        int bankCount = banks.size();
+        boolean[] eligible = new boolean[bankCount];
+        for (int b = 0; b < bankCount; b++) {
+            BitSet bank = banks.get(b);
+            eligible[b] = bank.get(requestFloor) && containsAll(bank, destinations);
+        }
+
+        FleetState state = fleet;
+        int capacity = queueCapacity;
+        boolean energyWeighted = isEnergyWeighted();
+
+        // Коллективное управление: позиции лифтов группы для расчёта интервалов
+        GroupControl group = null;
+        if (groupMode == GroupMode.COLLECTIVE) {
+            group = GroupControl.prepare(state, eligible, maxFloors);
+        }
+        ScoringWeights w = weights.get(); // одно чтение ссылки на всё решение
+        int best = UNKNOWN_VALUE;
+        int bestScore = Integer.MIN_VALUE;
+
+        Candidates snapshot = null;
+        int[] candidateIds = null;
+        int[] candidateScores = null;
+        int candidates = 0;
+        if (journal != null) {
+            snapshot = CANDIDATES.get();
+            if (snapshot.ids.length < state.size) {
+                snapshot.ids = new int[state.size];
+                snapshot.scores = new int[state.size];
+            }
+            candidateIds = snapshot.ids;
+            candidateScores = snapshot.scores;
+        }
+
+        // Обходятся только лифты подходящих банков: у каждого банка непрерывный диапазон индексов
+        boolean batch = state.size >= BATCH_SCORING_MIN_FLEET;
+        int[] scores = batch ? scoreBuffer(state.size) : null;
+        int[] bankStart = state.bankStart;
+        int scanned = Math.min(bankCount, bankStart.length - 1);
+        for (int b = 0; b < scanned; b++) {
+            int from = bankStart[b];
+            int to = bankStart[b + 1];
+            if (!eligible[b] || from == to) {
+                continue;
+            }
+
+            if (batch) {
+                // Большой парк: счёт банка без учёта энергии пакетными проходами по участкам
+                // подряд идущих лифтов с одним профилем (экспресс и местные лифты могут быть
+                // в одном банке, профиль лифта меняется на ходу) - у каждого своя таблица времени
+                int run = from;
+                while (run < to) {
+                    MotionProfile profile = cars[run].getProfile();
+                    int end = run + 1;
+                    while (end < to && cars[end].getProfile() == profile) {
+                        end++;
+                    }
+                    profile.prepareTravelTable(maxFloors);
+                    int[] travel = profile.travelPenaltyTable(w.getTravelSecondFine());
+                    ScoringKernel.scoreRange(state, run, end, requestFloor, requestDirection, w, travel, scores);
+                    run = end;
+                }
+            }
+
+            for (int i = from; i < to; i++) {
+                if (state.taskCount[i] >= capacity || !fitsShaft(cars[i], command)) {
+                    continue;
+                }
+
+                int score;
+                if (!batch) {
+                    score = calculateScore(state, i, cars[i], command, energyWeighted, w);
+                } else if (energyWeighted) {
+                    // Штраф за расстояние и время в пути из пакетного счёта заменяется энергией поездки
+                    int distance = Math.abs(state.currentFloor[i] - requestFloor);
+                    score = scores[i] + distance * w.getDistanceFine() +
+                            travelPenalty(cars[i].getProfile(), distance, w) -
+                            movementPenalty(cars[i], state.currentFloor[i], command, true, w);
+                } else {
+                    score = scores[i];
+                }
+                if (group != null) {
+                    score += collectiveScore(state, i, cars[i], command, group);
+                } else if (cars[i].isDoubleDeck()) {
+                    score += deckPairingScore(state, i, cars[i], command);
+                }
+
+                if (candidateIds != null) {
+                    candidateIds[candidates] = i + 1;
+                    candidateScores[candidates++] = score;
+                }
+
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+        }
+
+        if (snapshot != null) {
+            snapshot.sequence = command.getSequence();
+            snapshot.count = candidates;
+        }
+
+        return best == UNKNOWN_VALUE ? null : cars[best];
+    }
+
+    private static int[] scoreBuffer(int size) {
+        int[] buffer = SCORE_BUFFER.get();
+        if (buffer.length < size) {
+            buffer = new int[size];
+            SCORE_BUFFER.set(buffer);
+        }
+        return buffer;
+    }
+
+    // Запись решения в журнал, когда лифт уже принял команду (отказ и откладывание не пишутся)
+    // Кандидаты - из последнего выбора этого потока, если он был для этой же команды
+    private void journalDispatch(Command command, Elevator elevator) {
+        Journal currentJournal = journal;
+        if (currentJournal == null) {
+            return;
+        }
+        Candidates snapshot = CANDIDATES.get();
+        int count = snapshot.sequence == command.getSequence() ? snapshot.count : 0;
+        currentJournal.recordDispatch(command, elevator.getID(), snapshot.ids, snapshot.scores, count);
+    }
+
+    // Штраф за время в пути по кинематическому профилю кабины
+    private static int travelPenalty(MotionProfile profile, int distance, ScoringWeights w) {
+        return (int) (profile.travelMillis(distance) * w.getTravelSecondFine() / 1000);
+    }
+
+    // Штраф за перемещение лифта к вызову и с пассажирами к цели
+    // Без учёта энергии - расстояние и время в пути, с учётом - энергия обеих поездок
+    private static int movementPenalty(Elevator car, int currentFloor, Command command,
+                                       boolean energyWeighted, ScoringWeights w) {
+        int requestFloor = command.getCallFloor();
+        int distance = Math.abs(currentFloor - requestFloor);
+        if (!energyWeighted) {
+            return distance * w.getDistanceFine() + travelPenalty(car.getProfile(), distance, w);
+        }
+
+        EnergyModel model = car.getEnergyModel();
+        double joules = model.tripJoules(distance, requestFloor > currentFloor, 0);
+
+        int targetFloor = command.getTargetFloor();
+        if (targetFloor != UNKNOWN_VALUE) {
+            joules += model.tripJoules(Math.abs(targetFloor - requestFloor), command.getDirection(),
+                    command.getPassengerCount());
+        }
+        return (int) (joules * w.getKilojouleFine() / 1000);
+    }
+
+    // Коллективное управление: бонус лифту, который уже остановится у этажа вызова в ту же
+    // сторону (пассажир подсядет на этой остановке), и штраф за сближение с соседями по группе
+    private static int collectiveScore(FleetState state, int i, Elevator car, Command command,
+                                       GroupControl group) {
+        int score = -group.headwayPenalty(i, command.getCallFloor(), command.getDirection());
+        if (stopsAtCallFloor(state, i, car, command)) {
+            score += BONUS_COMMITTED_STOP;
+        }
+        return score;
+    }
+
+    // Двухэтажная кабина: вызов у второй палубы уже запланированной остановки обслуживается
+    // той же остановкой - бонус за спаренную остановку
+    private static int deckPairingScore(FleetState state, int i, Elevator car, Command command) {
+        return stopsAtCallFloor(state, i, car, command) ? BONUS_DECK_PAIRING : 0;
+    }
+
+    // Есть ли в плане лифта остановка, где одна из палуб окажется у этажа вызова
+    // (план двухэтажной кабины - этажи нижней палубы, верхняя - этажом выше)
+    private static boolean stopsAtCallFloor(FleetState state, int i, Elevator car, Command command) {
+        int requestFloor = command.getCallFloor();
+        boolean requestDirection = command.getDirection();
+        if (command.getTargetFloor() == UNKNOWN_VALUE) {
+            return false;
+        }
+        return state.hasPlannedStop(i, requestFloor, requestDirection) ||
+               (car.isDoubleDeck() && state.hasPlannedStop(i, requestFloor - 1, requestDirection));
+    }
+
+    // Кабина шахты с двумя кабинами - только если работа не пересечётся с соседкой
+    private static boolean fitsShaft(Elevator car, Command command) {
+        Shaft shaft = car.getShaft();
+        return shaft == null || shaft.canAccept(car, command);
+    }
+
+    // Расчёт счета лифта для запроса (по массивам состояния парка)
+    private int calculateScore(FleetState state, int i, Elevator car, Command command,
+                               boolean energyWeighted, ScoringWeights w) {
+        int requestFloor = command.getCallFloor();
+        boolean requestDirection = command.getDirection();
+        int score = 0;
+        int currentFloor = state.currentFloor[i];
+        Status status = STATUSES[state.status[i]];
+
+        // Штраф за количество задач в очереди
+        int taskCount = state.taskCount[i];
+        score -= taskCount * w.getTaskFine();
+
+        // Большой бонус за свободный лифт
+        if (status == Status.STOPPED && taskCount == 0 && state.processing[i] == FleetState.FALSE) {
+            score += w.getFreeBonus();
+        }
+
+        // Штраф за перемещение: расстояние и время в пути или энергия поездки
+        score -= movementPenalty(car, currentFloor, command, energyWeighted, w);
+
+        // Бонус если лифт движется в нужном направлении и запрос на пути
+        if (status == Status.MOVING && (state.direction[i] == FleetState.TRUE) == requestDirection) {
+            int targetFloor = state.targetFloor[i];
+            boolean onTheWay = requestDirection == UP
+                    ? requestFloor >= currentFloor && requestFloor <= targetFloor
+                    : requestFloor <= currentFloor && requestFloor >= targetFloor;
+            if (onTheWay) {
+                score += w.getOnTheWayBonus();
+            }
+        }
+
+        // Бонус если лифт на том же этаже
+        if (currentFloor == requestFloor) {
+            score += w.getTrueFloorBonus();
+        }
+
+        return score;
+    }
+
+    // ЗАВЕРШЕНИЕ РАБОТЫ СИСТЕМЫ
+    public void shutdown() {
+        if (!isRunning) {
+            Logger.warning(DISPATCHER, "System not running");
+            return;
+        }
+
+        Logger.dispatcher("Initiating shutdown sequence...");
+        isRunning = false;
+        rejections.flush();
+
+        // Последняя контрольная точка до прерывания потоков: очереди не теряются
+        // Раздача отложенных останавливается до финальной контрольной точки: пул больше не меняется
+        stopHelperThread(drainThread);
+        drainThread = null;
+
+        // Периодическая запись сначала завершается: финальная точка пишется последней
+        if (checkpointThread != null) {
+            stopHelperThread(checkpointThread);
+            checkpointThread = null;
+            writeCheckpoint();
+            Logger.dispatcher("Checkpoint saved to " + checkpointFile);
+        }
+
+        // Прерываем все потоки лифтов
+        for (Thread thread : elevatorThreads) {
+            thread.interrupt();
+        }
+
+        // Ждём завершения потоков (максимум 3 секунды на каждый)
+        for (Thread thread : elevatorThreads) {
+            try {
+                clock.join(thread, 3000);
+                if (thread.isAlive()) {
+                    Logger.warning(DISPATCHER, thread.getName() + " did not stop in time");
+                }
+            } catch (InterruptedException e) {
+                Logger.error(DISPATCHER, "Interrupted while waiting for " + thread.getName());
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (journal != null) {
+            journal.close();
+            Logger.dispatcher("Journal saved to " + journal.getFile());
+            journal = null;
+        }
+
+        elevators = new Elevator[0];
+        fleet = new FleetState(0);
+        elevatorThreads.clear();
+        pendingPool.clear();
+        pendingCount.set(0);
+        hallCalls.clear();
+        openCalls.clear();
+        banks.clear();
+        reaches.clear();
+
+        Logger.dispatcher("All elevators stopped. System shutdown complete.");
+    }
+
+    // Служебный поток диспетчера: прерывание и ожидание завершения по часам модели
+    private void stopHelperThread(Thread thread) {
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            clock.join(thread, 3000);
+        } catch (InterruptedException e) {
+            Logger.error(DISPATCHER, "Interrupted while waiting for " + thread.getName());
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // СТАТИСТИКА
+    // Общее количество задач во всех очередях
+    public int getTotalTaskCount() {
+        return fleet.totalTaskCount();
+    }
+
+    // Количество свободных лифтов
+    public int getIdleElevatorCount() {
+        return fleet.idleCount();
     }
 }
\ No newline at end of file
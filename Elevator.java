@@ -1,38 +1,84 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.LinkedBlockingDeque;
-import java.util.concurrent.TimeUnit;
-
-enum Status {
-    MOVING,
-    STOPPED,
-    DOOR_OPEN
-}
+import java.util.concurrent.atomic.AtomicInteger;
 
 // КЛАСС ЛИФТА
 public class Elevator implements Runnable, Constants {
     private final int id;
 
-    // Для гарантии видимости изменений между потоками
-    private volatile int currentFloor;
-    private volatile int targetFloor;
-    private volatile boolean movementDirection;
-    private volatile Status status;
-    private volatile boolean isProcessingCommand = false;
+    // Состояние лифта хранится в общих массивах парка (индекс = id - 1)
+    private final FleetState fleet;
+    private final int index;
+
+    // Кинематический профиль кабины (скорость, ускорение, двери)
+    private volatile MotionProfile profile;
+
+    // Энергетическая модель и счётчики (пишет только поток лифта)
+    private volatile EnergyModel energyModel;
+    private volatile double consumedJoules;
+    private volatile double regeneratedJoules;
+    private volatile int servedPassengers; // доставлены к цели всего маршрута
+    private volatile int servedLegs;       // доставлены к концу участка (с пересадками - каждый участок)
+    private volatile int tripCount;
+    private volatile long idleSinceMillis;
+    private int passengersAboard;
+
+    // Обслуживаемые этажи (зона / банк лифтов), null - все этажи
+    private volatile BitSet servedFloors;
 
-    // Общие настройки для всех лифтов
-    private static volatile int speed = 5;
-    private static volatile int openedDoorsPeriod = 5;
+    // Двухэтажная кабина: верхняя палуба на этаж выше нижней, текущий этаж - этаж нижней палубы
+    private volatile boolean doubleDeck;
+
+    // Шахта с двумя кабинами (null - кабина одна в шахте) и возврат свободной кабины в свой конец
+    private volatile Shaft shaft;
+    private volatile boolean homing;
 
     // Потокобезопасная очередь команд
     private final BlockingDeque<Command> commands;
 
-    public Elevator(int id) {
+    // Выполняемая команда и признак, что пассажир уже в кабине (для контрольных точек)
+    private volatile Command currentCommand;
+    private volatile boolean passengerOnBoard;
+
+    // Пассажиры, подсевшие к выполняемой команде на остановках по пути (COLLECTIVE)
+    private volatile List<Command> riders = Collections.emptyList();
+
+    // Палубы двухэтажной кабины: выполняемой команды и подсевших в верхнюю палубу
+    // (публикуются раньше riders - контрольная точка видит палубу каждого пассажира)
+    private volatile int currentDeck;
+    private volatile Set<Command> upperDeckRiders = Collections.emptySet();
+
+    // Буфер плана остановок для FleetState (только поток лифта)
+    private final int[] planKeys = new int[PLAN_STOPS];
+
+    // Слот перенацеливания: этаж, где закончится текущее перемещение; UNKNOWN_VALUE - лифт не едет
+    // Пишут поток лифта и диспетчер (retarget), лифт читает его на каждой границе этажа
+    private final AtomicInteger moveTarget = new AtomicInteger(UNKNOWN_VALUE);
+
+    // Команда, к пассажиру которой лифт едет пустым (только такой лифт можно остановить по пути)
+    private volatile Command approaching;
+
+    // Диспетчер получает следующие участки маршрутов с пересадкой
+    private final Dispatcher dispatcher;
+
+    public Elevator(int id, MotionProfile profile, Dispatcher dispatcher, FleetState fleet) {
         this.id = id;
-        this.currentFloor = 1;
-        this.targetFloor = 1;
-        this.movementDirection = UP;
-        this.status = Status.STOPPED;
-        this.commands = new LinkedBlockingDeque<>();
+        this.index = id - 1;
+        this.profile = profile;
+        this.dispatcher = dispatcher;
+        this.fleet = fleet;
+        this.servedFloors = null;
+        this.energyModel = EnergyModel.standard();
+        this.commands = new LinkedBlockingDeque<>(dispatcher.getQueueCapacity());
     }
 
     // ГЕТТЕРЫ
@@ -41,72 +87,174 @@ public class Elevator implements Runnable, Constants {
     }
 
     public int getCurrentFloor() {
-        return currentFloor;
+        return fleet.getCurrentFloor(index);
     }
 
     public int getTargetFloor() {
-        return targetFloor;
+        return fleet.getTargetFloor(index);
     }
 
     public boolean getDirection() {
-        return movementDirection;
+        return fleet.getDirection(index);
     }
 
     public Status getStatus() {
-        return status;
+        return fleet.getStatus(index);
     }
 
     public boolean isProcessing() {
-        return isProcessingCommand;
+        return fleet.isProcessing(index);
     }
 
     public int getTaskCount() {
-        return commands.size();
+        return fleet.getTaskCount(index);
     }
 
-    // СТАТИЧЕСКИЕ ГЕТТЕРЫ И СЕТТЕРЫ
-    public static int getSpeed() {
-        return speed;
+    public Command getCurrentCommand() {
+        return currentCommand;
     }
 
-    public static void setSpeed(int newSpeed) {
-        if (newSpeed >= MIN_SPEED && newSpeed <= MAX_ELEVATOR_SPEED) {
-            speed = newSpeed;
-            Logger.info(CONFIG, "Elevator speed set to " + newSpeed + " s/floor");
-        } else {
-            Logger.error(CONFIG, "Invalid speed: " + newSpeed);
+    public boolean isPassengerOnBoard() {
+        return passengerOnBoard;
+    }
+
+    // Команды пассажиров, подсевших по пути к выполняемой (уже в кабине)
+    public List<Command> getRiders() {
+        return riders;
+    }
+
+    // Палуба пассажира выполняемой или подсевшей команды: 1 - верхняя (этаж выше позиции лифта)
+    public int getDeck(Command rider) {
+        if (rider == currentCommand) {
+            return currentDeck;
         }
+        return upperDeckRiders.contains(rider) ? 1 : 0;
     }
 
-    public static int getOpenedDoorsPeriod() {
-        return openedDoorsPeriod;
+    // Снимок очереди (слабо согласованный обход LinkedBlockingDeque)
+    public List<Command> getQueuedCommands() {
+        return new ArrayList<>(commands);
     }
 
-    public static void setOpenedDoorsPeriod(int period) {
-        if (period >= MIN_SPEED && period <= MAX_DOOR_SPEED) {
-            openedDoorsPeriod = period;
-            Logger.info(CONFIG, "Door period set to " + period + "s");
-        } else {
-            Logger.error(CONFIG, "Invalid door period: " + period);
+    public MotionProfile getProfile() {
+        return profile;
+    }
+
+    public void setProfile(MotionProfile profile) {
+        if (profile == null) {
+            Logger.error("Elevator №" + id, "Motion profile cannot be null");
+            return;
+        }
+        this.profile = profile;
+    }
+
+    public EnergyModel getEnergyModel() {
+        return energyModel;
+    }
+
+    public void setEnergyModel(EnergyModel model) {
+        if (model == null) {
+            Logger.error("Elevator №" + id, "Energy model cannot be null");
+            return;
+        }
+        this.energyModel = model;
+    }
+
+    // Потреблено из сети (Дж), без учёта рекуперации; текущий простой тоже учитывается
+    public double getConsumedJoules() {
+        double consumed = consumedJoules;
+        if (!isProcessing() && getTaskCount() == 0) {
+            consumed += energyModel.standbyJoules(dispatcher.getClock().nowMillis() - idleSinceMillis);
+        }
+        return consumed;
+    }
+
+    // Возвращено в сеть рекуперацией (Дж)
+    public double getRegeneratedJoules() {
+        return regeneratedJoules;
+    }
+
+    public int getServedPassengers() {
+        return servedPassengers;
+    }
+
+    public int getServedLegs() {
+        return servedLegs;
+    }
+
+    // Число поездок (перемещений между этажами)
+    public int getTripCount() {
+        return tripCount;
+    }
+
+    // Набор этажей задаётся диспетчером до запуска потока и далее не меняется
+    public void setServedFloors(BitSet floors) {
+        this.servedFloors = floors;
+    }
+
+    public BitSet getServedFloors() {
+        return servedFloors;
+    }
+
+    // Тип кабины задаётся диспетчером до запуска потока
+    public void setDoubleDeck(boolean doubleDeck) {
+        this.doubleDeck = doubleDeck;
+    }
+
+    public boolean isDoubleDeck() {
+        return doubleDeck;
+    }
+
+    public void setShaft(Shaft shaft) {
+        this.shaft = shaft;
+    }
+
+    public Shaft getShaft() {
+        return shaft;
+    }
+
+    public boolean serves(int floor) {
+        BitSet floors = servedFloors;
+        return floors == null || floors.get(floor);
+    }
+
+    // Обслуживает ли лифт этаж вызова и все этажи назначения участка
+    public boolean servesLeg(Command command) {
+        if (!serves(command.getCallFloor())) {
+            return false;
         }
+        for (int floor : command.getDestinations()) {
+            if (!serves(floor)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     // ВЫЧИСЛЕНИЯ
     // Расчёт расстояния до целевого этажа
     public int calculateDistance(int floor) {
-        return Math.abs(this.currentFloor - floor);
+        return Math.abs(getCurrentFloor() - floor);
+    }
+
+    // Оценка времени в пути до этажа по профилю кабины (мс)
+    public long estimateTravelMillis(int floor) {
+        return profile.travelMillis(calculateDistance(floor));
     }
 
     // Проверка, нахождения этажа по ходу движения лифта
     public boolean isOnTheWay(int floor, boolean requestDirection) {
-        if (status != Status.MOVING) {
+        if (getStatus() != Status.MOVING) {
             return false;
         }
 
+        boolean movementDirection = getDirection();
         if (movementDirection != requestDirection) {
             return false;
         }
 
+        int currentFloor = getCurrentFloor();
+        int targetFloor = getTargetFloor();
         if (movementDirection == UP) {
             return floor >= currentFloor && floor <= targetFloor;
         } else {
@@ -118,12 +266,13 @@ public class Elevator implements Runnable, Constants {
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("Elevator №").append(id)
-                .append(" | Floor: ").append(currentFloor);
+                .append(" [").append(profile.getName()).append("]")
+                .append(" | Floor: ").append(getCurrentFloor());
 
-        Status currentStatus = status; // локальная копия для консистентности
+        Status currentStatus = getStatus(); // локальная копия для консистентности
         if (currentStatus == Status.MOVING) {
-            sb.append(" | Moving ").append(movementDirection == UP ? "↑" : "↓")
-                    .append(" to ").append(targetFloor);
+            sb.append(" | Moving ").append(getDirection() == UP ? "↑" : "↓")
+                    .append(" to ").append(getTargetFloor());
         } else if (currentStatus == Status.DOOR_OPEN) {
             sb.append(" | Doors open");
         } else {
@@ -140,23 +289,95 @@ public class Elevator implements Runnable, Constants {
 
     // УПРАВЛЕНИЕ КОМАНДАМИ
 
-    // Добавление команды в очередь (из Dispatcher)
-    public void addCommand(Command command) {
+    // Добавление команды в очередь (из Dispatcher) без блокировки
+    // false - очередь заполнена, решение принимает политика допуска диспетчера
+    public boolean offerCommand(Command command) {
         if (command == null || !command.isValid()) {
             Logger.error("Elevator №" + id, "Received invalid command");
-            return;
+            return false;
         }
 
-        try {
-            commands.put(command);
-            Logger.elevator(id, "Command queued: " + command + " (queue size: " + commands.size() + ")");
-        } catch (InterruptedException e) {
-            Logger.error("Elevator №" + id, "Interrupted while adding command");
-            Thread.currentThread().interrupt();
+        // Счётчик растёт до постановки: лифт, успевший забрать команду, не уведёт его ниже нуля
+        fleet.addTaskCount(index, 1);
+        long start = Profiler.start();
+        boolean queued = commands.offerLast(command);
+        Profiler.stop(Profiler.Probe.QUEUE_PUT, start);
+        if (!queued) {
+            fleet.addTaskCount(index, -1);
+            return false;
+        }
+
+        Logger.elevator(id, "Command queued: " + command + " (queue size: " + commands.size() + ")");
+        LifecycleEvents.Queued.emit(id, command, commands.size(), false);
+        if (homing) {
+            stopHoming();
+        }
+        dispatcher.getClock().unpark(this);
+        return true;
+    }
+
+    // Снятие ещё не начатой команды (вытеснение низкоприоритетного запроса)
+    public boolean removeCommand(Command command) {
+        if (!commands.remove(command)) {
+            return false;
+        }
+        fleet.addTaskCount(index, -1);
+        Shaft current = shaft;
+        if (current != null) {
+            current.release(this, command);
+        }
+        return true;
+    }
+
+    // Самая низкоприоритетная команда очереди (при равенстве - самая поздняя)
+    public Command findLowestPriorityCommand() {
+        Command lowest = null;
+        for (Command command : commands) {
+            if (lowest == null || command.getPriority() <= lowest.getPriority()) {
+                lowest = command;
+            }
+        }
+        return lowest;
+    }
+
+    // ПЕРЕНАЦЕЛИВАНИЕ
+    // Остановка по пути на этаже floor (из любого потока, без локов)
+    // Только для лифта, едущего пустым к пассажиру, и только на этаже впереди по ходу движения
+    // ближе текущей цели; применяется на ближайшей границе этажа. true - остановка запрошена
+    public boolean retarget(int floor) {
+        if (approaching == null) {
+            return false;
         }
+
+        while (true) {
+            int target = moveTarget.get();
+            if (target == UNKNOWN_VALUE) {
+                return false;
+            }
+            int current = getCurrentFloor();
+            boolean ahead = target > current
+                    ? floor > current && floor < target
+                    : floor < current && floor > target;
+            if (!ahead) {
+                return false;
+            }
+            if (moveTarget.compareAndSet(target, floor)) {
+                return true;
+            }
+        }
+    }
+
+    // Лифт едет пустым к пассажиру
+    public boolean isApproaching() {
+        return approaching != null;
     }
 
     // ДЕЙСТВИЯ ЛИФТА
+    // Движение по одному этажу: после каждого этажа перечитывается слот moveTarget,
+    // поэтому остановку на промежуточном этаже лифт выполняет не позже чем через этаж
+    // Время этажа - разность моментов прохождения соседних этажей от начала поездки
+    // (MotionProfile.arrivalMillis): в сумме ровно время всей поездки по профилю,
+    // разгон - на первых этажах, торможение - на последних
     private void move(int floor) {
         // Валидация
         if (floor < MIN_FLOORS || floor > MAX_FLOORS) {
@@ -164,58 +385,355 @@ public class Elevator implements Runnable, Constants {
             return;
         }
 
-        int distance = calculateDistance(floor);
+        int current = getCurrentFloor();
+        int distance = Math.abs(floor - current);
 
         if (distance == 0) {
-            Logger.elevator(id, "Already on floor " + currentFloor);
+            Logger.elevator(id, "Already on floor " + floor);
             return;
         }
 
         // Устанавливаем параметры движения
-        this.targetFloor = floor;
-        this.movementDirection = (floor > currentFloor) ? UP : DOWN;
-        this.status = Status.MOVING;
-
-        long travelTime = (long) distance * speed;
+        boolean movementDirection = (floor > current) ? UP : DOWN;
+        int step = movementDirection == UP ? 1 : -1;
+        moveTarget.set(floor);
+        fleet.setTargetFloor(index, floor);
+        fleet.setDirection(index, movementDirection);
+        fleet.setStatus(index, Status.MOVING);
+        publishState();
+
+        MotionProfile motion = profile; // локальная копия на всю поездку
         String direction = movementDirection == UP ? UP_STR : DOWN_STR;
+        Logger.elevator(id, "Moving " + direction + ": " + current + " -> " + floor +
+                " (" + formatTime(motion.travelMillis(distance)) + ")");
+
+        int shownTarget = floor;
+        int startFloor = current;
+        boolean interrupted = false;
+        LifecycleEvents.Movement movement = new LifecycleEvents.Movement();
+        movement.begin();
+        try {
+            while (true) {
+                int target = moveTarget.get();
+
+                // Этаж остановки уже позади (запрос опоздал) - едем к исходной цели
+                if ((target - current) * step < 0) {
+                    moveTarget.compareAndSet(target, floor);
+                    continue;
+                }
+                if (target == current) {
+                    break;
+                }
+                if (target != shownTarget) {
+                    shownTarget = target;
+                    fleet.setTargetFloor(index, target);
+                    publishState();
+                    Logger.elevator(id, "Retargeted: stopping at floor " + target);
+                }
 
-        Logger.elevator(id, "Moving " + direction + ": " + currentFloor + " -> " + floor +
-                " (" + formatTime(travelTime) + ")");
+                Shaft twin = shaft;
+                if (twin != null) {
+                    awaitShaft(twin, current, current + step);
+                }
 
-        try {
-            TimeUnit.SECONDS.sleep(travelTime);
-            this.currentFloor = floor;
-            Logger.elevator(id, "Arrived at floor " + currentFloor);
+                // Шаг по профилю всей поездки от startFloor: разгон в начале, торможение перед целью
+                int passed = (current - startFloor) * step;
+                int planned = (target - startFloor) * step;
+                dispatcher.getClock().sleep(motion.arrivalMillis(planned, passed + 1) -
+                        motion.arrivalMillis(planned, passed));
+                current += step;
+                fleet.setCurrentFloor(index, current);
+                if (twin != null) {
+                    twin.arrived(this, current);
+                }
+                meterEnergy(energyModel.tripJoules(1, movementDirection, passengersAboard));
+            }
+
+            tripCount++;
+            publishState();
+            Logger.elevator(id, "Arrived at floor " + current);
         } catch (InterruptedException e) {
-            Logger.error("Elevator №" + id, "Movement interrupted");
+            interrupted = true;
+            publishState();
+            Logger.error("Elevator №" + id, "Movement interrupted at floor " + current);
             Thread.currentThread().interrupt();
+        } finally {
+            moveTarget.set(UNKNOWN_VALUE);
+            if (movement.shouldCommit()) {
+                movement.elevatorId = id;
+                movement.fromFloor = startFloor;
+                movement.toFloor = current;
+                movement.plannedFloor = floor;
+                movement.passengers = passengersAboard;
+                movement.interrupted = interrupted;
+                movement.commit();
+            }
+        }
+    }
+
+    // Шаг в шахте с двумя кабинами: этаж впереди может быть слишком близко к соседке
+    private void awaitShaft(Shaft twin, int from, int to) throws InterruptedException {
+        boolean logged = false;
+        while (!twin.tryAdvance(this, from, to)) {
+            if (!logged) {
+                Logger.elevator(id, "Waiting for shaft partner before floor " + to);
+                logged = true;
+            }
+            dispatcher.getClock().sleep(TWIN_WAIT_MILLIS);
+        }
+    }
+
+    // Свободная кабина шахты с двумя кабинами уходит в свой конец, освобождая путь соседке
+    // Новая команда останавливает возврат на ближайшем этаже (stopHoming)
+    private void returnHome() {
+        Shaft twin = shaft;
+        if (twin == null || !commands.isEmpty()) {
+            return;
+        }
+        int home = twin.homeOf(this);
+        if (getCurrentFloor() == home) {
+            return;
+        }
+
+        homing = true;
+        try {
+            Logger.elevator(id, "Returning to floor " + home + " to clear the shaft");
+            move(home);
+            stop();
+        } finally {
+            homing = false;
+        }
+    }
+
+    private void stopHoming() {
+        int target = moveTarget.get();
+        int current = getCurrentFloor();
+        if (target != UNKNOWN_VALUE && target != current) {
+            moveTarget.compareAndSet(target, current + Integer.signum(target - current));
+        }
+    }
+
+    // Движение пустой кабины к этажу вызова
+    // Диспетчер может остановить лифт на этаже попутного вызова (retarget): лифт забирает
+    // этот вызов, а свой возвращает в общий пул; если вызов уже забрали - едет дальше
+    private Command approach(Command command, int deck) {
+        int pickupFloor = command.getFirstTarget() - deck;
+        approaching = command;
+        try {
+            while (getCurrentFloor() != pickupFloor && !Thread.currentThread().isInterrupted()) {
+                move(pickupFloor);
+                int floor = getCurrentFloor();
+                if (floor == pickupFloor || Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+
+                Command passing = dispatcher.claimPassingCall(this, command, floor);
+                if (passing != null) {
+                    return passing;
+                }
+                Logger.elevator(id, "No call left on floor " + floor + ", resuming to floor " + pickupFloor);
+            }
+            return command;
+        } finally {
+            approaching = null;
         }
     }
 
     private void openDoors() {
-        this.status = Status.DOOR_OPEN;
+        MotionProfile doors = profile; // локальная копия на весь цикл дверей
+        int currentFloor = getCurrentFloor();
+        fleet.setStatus(index, Status.DOOR_OPEN);
+        publishState();
         Logger.elevator(id, "Doors OPENING on floor " + currentFloor);
 
+        LifecycleEvents.DoorCycle cycle = new LifecycleEvents.DoorCycle();
+        cycle.begin();
         try {
-            TimeUnit.SECONDS.sleep(openedDoorsPeriod);
+            dispatcher.getClock().sleep(doors.getDoorOpenMillis() + doors.getDoorDwellMillis());
             Logger.elevator(id, "Doors CLOSING on floor " + currentFloor);
+            dispatcher.getClock().sleep(doors.getDoorCloseMillis());
+            meterEnergy(energyModel.getDoorCycleJoules());
         } catch (InterruptedException e) {
+            cycle.interrupted = true;
             Logger.error("Elevator №" + id, "Door operation interrupted");
             Thread.currentThread().interrupt();
         }
+        if (cycle.shouldCommit()) {
+            cycle.elevatorId = id;
+            cycle.floor = currentFloor;
+            cycle.commit();
+        }
     }
 
     private void stop() {
-        this.status = Status.STOPPED;
-        Logger.elevator(id, "Stopped at floor " + currentFloor);
+        fleet.setStatus(index, Status.STOPPED);
+        publishState();
+        Logger.elevator(id, "Stopped at floor " + getCurrentFloor());
+    }
+
+    // Учёт энергии: положительная - потребление, отрицательная - рекуперация
+    private void meterEnergy(double joules) {
+        if (joules >= 0) {
+            consumedJoules += joules;
+        } else {
+            regeneratedJoules -= joules;
+        }
+    }
+
+    // ПЛАН ОСТАНОВОК
+    // Публикация ближайших остановок для коллективного управления: этаж посадки
+    // (UNKNOWN_VALUE - пассажир уже в кабине) и этажи высадки, все в сторону поездки
+    private void publishPlan(int pickupFloor, boolean direction, Iterable<Integer> stops) {
+        int count = 0;
+        if (pickupFloor != UNKNOWN_VALUE) {
+            planKeys[count++] = FleetState.stopKey(pickupFloor, direction);
+        }
+        for (int floor : stops) {
+            if (count == PLAN_STOPS) {
+                break;
+            }
+            planKeys[count++] = FleetState.stopKey(floor, direction);
+        }
+        fleet.setPlan(index, planKeys, count);
+    }
+
+    // План до посадки: этаж вызова и цели команды (этажи нижней палубы для палубы deck)
+    private void publishPlan(Command command, int deck) {
+        List<Integer> targets = new ArrayList<>();
+        for (int floor : command.getDestinations()) {
+            targets.add(floor - deck);
+        }
+        publishPlan(command.getCallFloor() - deck, command.getDirection(), targets);
+    }
+
+    // Палуба пассажиров основной команды: у двухэтажной кабины позиция - этаж нижней палубы,
+    // и она не поднимается выше предпоследнего этажа, поэтому команда с верхним этажом здания
+    // едет в верхней палубе (нижний этаж здания и верхний в одном участке маршрут не сводит)
+    // Пассажир у верхней палубы стоящей кабины (например, после восстановления контрольной
+    // точки) садится в неё без перестановки кабины
+    private int deckFor(Command command) {
+        if (!doubleDeck) {
+            return 0;
+        }
+        int top = dispatcher.getMaxFloors();
+        if (command.getCallFloor() == top) {
+            return 1;
+        }
+        boolean upperFits = command.getCallFloor() - 1 >= MIN_FLOORS;
+        for (int target : command.getDestinations()) {
+            if (target == top) {
+                return 1;
+            }
+            upperFits &= target - 1 >= MIN_FLOORS;
+        }
+        return upperFits && command.getCallFloor() == getCurrentFloor() + 1 ? 1 : 0;
     }
 
-    // Форматирование времени
-    private String formatTime(long seconds) {
-        if (seconds < 60) {
-            return seconds + "s";
+    // Команды своей очереди в ту же сторону подсаживаются на остановке (цели вызова всегда
+    // по его направлению) и добавляют свои остановки: при коллективном управлении - с этажа
+    // остановки, у двухэтажной кабины - с этажей обеих палуб
+    // Возвращает число подсевших пассажиров
+    private int boardJoining(boolean direction, TreeSet<Integer> stops, List<Command> joined) {
+        boolean collective = dispatcher.isCollective();
+        if ((!collective && !doubleDeck) || commands.isEmpty()) {
+            return 0;
         }
 
+        int floor = getCurrentFloor();
+        int boarded = 0;
+        Set<Command> upper = null;
+        for (Command queued : commands) {
+            int deck = deckAt(queued, floor, direction, collective);
+            if (deck == UNKNOWN_VALUE || !commands.remove(queued)) {
+                continue;
+            }
+            fleet.addTaskCount(index, -1);
+
+            // Посадка закрывается до чтения целей: позже к команде никто не присоединится
+            // Остановка для цели - этаж нижней палубы, когда палуба пассажира у его этажа
+            dispatcher.onJointBoarding(this, queued);
+            for (int target : queued.getDestinations()) {
+                stops.add(target - deck);
+            }
+            joined.add(queued);
+            boarded += queued.getPassengerCount();
+            if (deck == 1) {
+                if (upper == null) {
+                    upper = Collections.newSetFromMap(new IdentityHashMap<>());
+                    upper.addAll(upperDeckRiders);
+                }
+                upper.add(queued);
+            }
+
+            Journal journal = dispatcher.getJournal();
+            if (journal != null) {
+                journal.recordStart(id, queued);
+            }
+        }
+
+        if (upper != null) {
+            upperDeckRiders = upper;
+        }
+        if (boarded > 0) {
+            riders = new ArrayList<>(joined);
+            dispatcher.onCapacityFreed();
+        }
+        return boarded;
+    }
+
+    // Палуба, с которой пассажир команды садится на остановке floor: 0 - нижняя (этаж остановки),
+    // 1 - верхняя (этаж выше, только у двухэтажной кабины); UNKNOWN_VALUE - здесь не садится
+    private int deckAt(Command queued, int floor, boolean direction, boolean collective) {
+        if (queued.getDirection() != direction || queued.getTargetFloor() == UNKNOWN_VALUE) {
+            return UNKNOWN_VALUE;
+        }
+        if (queued.getCallFloor() == floor) {
+            // Нижняя палуба не поднимается на верхний этаж здания
+            if (!collective && !doubleDeck || deckFor(queued) != 0) {
+                return UNKNOWN_VALUE;
+            }
+            return 0;
+        }
+        if (!doubleDeck || queued.getCallFloor() != floor + 1) {
+            return UNKNOWN_VALUE;
+        }
+        for (int target : queued.getDestinations()) {
+            if (target - 1 < MIN_FLOORS) {
+                return UNKNOWN_VALUE;
+            }
+        }
+        return 1;
+    }
+
+    // Команды, брошенные из-за ошибки, больше не держат этажи шахты
+    private void releaseShaft() {
+        Shaft twin = shaft;
+        Command current = currentCommand;
+        if (twin == null || current == null) {
+            return;
+        }
+        twin.release(this, current);
+        for (Command rider : riders) {
+            twin.release(this, rider);
+        }
+    }
+
+    // Запись смены состояния в журнал диспетчера
+    private void publishState() {
+        Journal journal = dispatcher.getJournal();
+        if (journal != null) {
+            journal.recordState(id, getCurrentFloor(), getTargetFloor(), getStatus(), getDirection());
+        }
+    }
+
+    // Форматирование времени (мс)
+    private String formatTime(long millis) {
+        if (millis < 60_000) {
+            return String.format(Locale.ROOT, "%.1fs", millis / 1000.0);
+        }
+
+        long seconds = millis / 1000;
+
         long hours = seconds / 3600;
         long minutes = (seconds % 3600) / 60;
         long secs = seconds % 60;
@@ -231,50 +749,213 @@ public class Elevator implements Runnable, Constants {
         return sb.toString().trim();
     }
 
+    // Следующая команда: своя очередь, при позднем назначении - ещё и общий пул вызовов
+    // null - за время ожидания вызовов не появилось
+    // На виртуальных часах свободный лифт ждёт работу по их очереди событий (park):
+    // блокирующее ожидание вне часов остановило бы весь детерминированный прогон
+    private Command nextCommand() throws InterruptedException {
+        SimulationClock clock = dispatcher.getClock();
+        if (!dispatcher.isLateBinding()) {
+            if (!clock.isVirtual()) {
+                long start = Profiler.start();
+                Command command = commands.take();
+                Profiler.stop(Profiler.Probe.QUEUE_TAKE, start);
+                return taken(command);
+            }
+            Command command = commands.pollFirst();
+            if (command == null) {
+                clock.park(this, HALL_CALL_WAIT_MILLIS);
+            }
+            return taken(command);
+        }
+
+        Command command = commands.pollFirst();
+        if (command != null) {
+            return taken(command);
+        }
+
+        HallCallPool hallCalls = dispatcher.getHallCalls();
+        long seenVersion = hallCalls.getVersion();
+        command = hallCalls.claimNearest(this);
+        if (command != null) {
+            dispatcher.onHallCallClaimed(this, command);
+            return command;
+        }
+
+        if (clock.isVirtual()) {
+            clock.park(hallCalls, HALL_CALL_WAIT_MILLIS);
+        } else {
+            hallCalls.awaitCall(seenVersion, HALL_CALL_WAIT_MILLIS);
+        }
+        return null;
+    }
+
+    // Команда вынута из своей очереди - счётчик задач в FleetState уменьшается
+    private Command taken(Command command) {
+        if (command != null) {
+            fleet.addTaskCount(index, -1);
+        }
+        return command;
+    }
+
     // ОСНОВНОЙ ЦИКЛ ЛИФТА
     @Override
     public void run() {
+        idleSinceMillis = dispatcher.getClock().nowMillis();
+        returnHome();
         while (!Thread.currentThread().isInterrupted()) {
             try {
-                // Блокирующее ожидание команды
-                Command command = commands.take();
-                isProcessingCommand = true;
+                // Ожидание команды
+                Command command = nextCommand();
+                if (command == null) {
+                    continue;
+                }
+
+                // В очереди освободилось место - диспетчер раздаёт отложенные запросы
+                dispatcher.onCapacityFreed();
+                fleet.setProcessing(index, true);
+                meterEnergy(energyModel.standbyJoules(dispatcher.getClock().nowMillis() - idleSinceMillis));
+                currentCommand = command;
+                passengerOnBoard = false;
 
-                int pickupFloor = command.getFirstTarget();
-                int destinationFloor = command.getSecondTarget();
+                // Посадка закрыта: одинаковые вызовы дальше объединяются в новую команду
+                dispatcher.onBoardingClosed(command);
+
+                Journal journal = dispatcher.getJournal();
+                if (journal != null) {
+                    journal.recordStart(id, command);
+                }
 
                 // Логирование в зависимости от режима
                 if (command.getMode() == Command.Mode.EXTERNAL) {
-                    Logger.elevator(id, "Processing EXTERNAL request: pickup floor = " + pickupFloor +
-                            ", direction = " + (command.getDirection() ? "UP" : "DOWN") +
-                            ", destination = " + destinationFloor);
+                    Logger.elevator(id, "Processing EXTERNAL request: pickup floor = " + command.getFirstTarget() +
+                            ", destination = " + command.getSecondTarget());
                 } else {
-                    Logger.elevator(id, "Processing INTERNAL request: pickup = " + pickupFloor +
-                            ", destination = " + destinationFloor);
+                    Logger.elevator(id, "Processing INTERNAL request: pickup = " + command.getFirstTarget() +
+                            ", destination = " + command.getSecondTarget());
                 }
 
-                // Движение к пассажиру
-                if (currentFloor != pickupFloor) {
-                    move(pickupFloor);
+                // Событие JFR от начала работы над командой до высадки последнего пассажира
+                LifecycleEvents.Completed completed = new LifecycleEvents.Completed();
+                completed.begin();
+                int deck = deckFor(command);
+                currentDeck = deck;
+                publishPlan(command, deck);
+
+                // Движение к пассажиру; по пути лифт может забрать попутный вызов вместо своего
+                Command served = approach(command, deck);
+                if (served != command) {
+                    command = served;
+                    currentCommand = command;
+                    dispatcher.onBoardingClosed(command);
+                    deck = deckFor(command);
+                    currentDeck = deck;
+                    publishPlan(command, deck);
+                    if (journal != null) {
+                        journal.recordStart(id, command);
+                    }
+                    // Попутный пассажир едет в другой палубе - кабина встаёт к ней
+                    if (getCurrentFloor() != command.getCallFloor() - deck) {
+                        move(command.getCallFloor() - deck);
+                    }
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
                 }
-                stop();
-                openDoors();
 
-                // Перемещение пассажира к цели
-                if (currentFloor != destinationFloor) {
-                    move(destinationFloor);
+                // Остановки поездки в порядке движения (этажи нижней палубы); подсевшие по пути
+                // добавляют свои
+                boolean direction = command.getDirection();
+                TreeSet<Integer> stops = new TreeSet<>(direction == UP
+                        ? Comparator.<Integer>naturalOrder() : Comparator.<Integer>reverseOrder());
+                for (int floor : command.getDestinations()) {
+                    stops.add(floor - deck);
                 }
+                List<Command> joined = new ArrayList<>();
+                int passengers = command.getPassengerCount();
+
                 stop();
+                dispatcher.onPickup(command);
+                passengers += boardJoining(direction, stops, joined);
+                int plannedStops = stops.size();
+                publishPlan(UNKNOWN_VALUE, direction, stops);
                 openDoors();
+                passengerOnBoard = true;
+                if (passengers > 1) {
+                    Logger.elevator(id, "Boarded " + passengers + " passengers, stops: " + plannedStops);
+                }
+
+                // Перемещение пассажиров к целям (объединённые вызовы - по ходу движения)
+                // Загрузка между остановками - пропорционально оставшимся целям
+                while (!stops.isEmpty()) {
+                    passengersAboard = Math.max(1, passengers * stops.size() / plannedStops);
+                    int floor = stops.pollFirst();
+                    if (getCurrentFloor() != floor) {
+                        move(floor);
+                    }
+                    stop();
+                    int before = stops.size();
+                    passengers += boardJoining(direction, stops, joined);
+                    plannedStops += stops.size() - before;
+                    publishPlan(UNKNOWN_VALUE, direction, stops);
+                    openDoors();
+                }
+                passengersAboard = 0;
 
                 Logger.elevator(id, "Request COMPLETED");
-                isProcessingCommand = false;
+                if (completed.shouldCommit()) {
+                    completed.elevatorId = id;
+                    completed.sequence = command.getSequence();
+                    completed.pickupFloor = command.getCallFloor();
+                    completed.finalFloor = getCurrentFloor();
+                    completed.passengers = passengers;
+                    completed.stops = plannedStops;
+                    completed.commit();
+                }
+                fleet.clearPlan(index);
+                fleet.setProcessing(index, false);
+                idleSinceMillis = dispatcher.getClock().nowMillis();
+
+                // Пассажир засчитывается лифту, довёзшему его до цели маршрута: участки до
+                // пересадки считаются отдельно
+                joined.add(0, command);
+                for (Command delivered : joined) {
+                    servedLegs += delivered.getPassengerCount();
+                    if (delivered.getNextLeg() == null) {
+                        servedPassengers += delivered.getPassengerCount();
+                    }
+                    if (journal != null) {
+                        journal.recordComplete(id, delivered);
+                    }
+                    if (shaft != null) {
+                        shaft.release(this, delivered);
+                    }
+
+                    // Пассажир с пересадкой продолжает путь на другом лифте
+                    Command nextLeg = delivered.getNextLeg();
+                    if (nextLeg != null) {
+                        Logger.elevator(id, "Passenger transfers at floor " + nextLeg.getCallFloor());
+                        if (!dispatcher.dispatchTransfer(nextLeg)) {
+                            Logger.error("Elevator №" + id, "Transfer leg lost, passenger stranded at floor " +
+                                    nextLeg.getCallFloor() + ": " + nextLeg);
+                        }
+                    }
+                }
+
+                // Сбрасываем после отправки пересадок: контрольная точка между ними их не потеряет
+                currentCommand = null;
+                riders = Collections.emptyList();
+                upperDeckRiders = Collections.emptySet();
+                passengerOnBoard = false;
+                returnHome();
 
             } catch (InterruptedException e) {
                 Logger.warning("Elevator №" + id, "Received shutdown signal");
                 Thread.currentThread().interrupt();
                 break;
             } catch (Exception e) {
+                fleet.clearPlan(index);
+                releaseShaft();
                 Logger.error("Elevator №" + id, "Unexpected error: " + e.getMessage());
             }
         }
@@ -0,0 +1,101 @@
+/**
+ * Энергетическая модель лифта
+ * Масса кабины, противовес, КПД привода и рекуперации, потребление в простое
+ *
+ * Энергия поездки:
+ * - противовес уравновешивает кабину и часть номинальной загрузки (balanceRatio),
+ *   поэтому работу против силы тяжести совершает только дисбаланс масс
+ * - если дисбаланс тянет кабину по ходу движения (гружёная кабина вниз, пустая вверх),
+ *   привод работает генератором и возвращает часть энергии (regenEfficiency)
+ * - потери на трение и разгон не зависят от направления и всегда потребляются
+ *
+ * Модель неизменяемая - кабины и диспетчер читают её без синхронизации
+ */
+public final class EnergyModel implements Constants {
+
+    private final String name;
+    private final double carMassKg;
+    private final double ratedLoadKg;
+    private final double balanceRatio;     // доля номинальной загрузки в противовесе
+    private final double driveEfficiency;  // КПД привода в двигательном режиме
+    private final double regenEfficiency;  // доля возвращаемой энергии, 0 - без рекуперации
+    private final double runningLossNewtons;
+    private final double standbyWatts;
+    private final double doorCycleJoules;
+
+    public EnergyModel(String name, double carMassKg, double ratedLoadKg, double balanceRatio,
+                       double driveEfficiency, double regenEfficiency, double runningLossNewtons,
+                       double standbyWatts, double doorCycleJoules) {
+        if (carMassKg <= 0 || ratedLoadKg <= 0 || balanceRatio < 0 || balanceRatio > 1 ||
+            driveEfficiency <= 0 || driveEfficiency > 1 || regenEfficiency < 0 || regenEfficiency > 1 ||
+            runningLossNewtons < 0 || standbyWatts < 0 || doorCycleJoules < 0) {
+            throw new IllegalArgumentException("Invalid energy model: " + name);
+        }
+        this.name = name;
+        this.carMassKg = carMassKg;
+        this.ratedLoadKg = ratedLoadKg;
+        this.balanceRatio = balanceRatio;
+        this.driveEfficiency = driveEfficiency;
+        this.regenEfficiency = regenEfficiency;
+        this.runningLossNewtons = runningLossNewtons;
+        this.standbyWatts = standbyWatts;
+        this.doorCycleJoules = doorCycleJoules;
+    }
+
+    // ГОТОВЫЕ МОДЕЛИ
+
+    // Обычный лифт: редукторный привод без рекуперации
+    public static EnergyModel standard() {
+        return new EnergyModel(LOCAL_PROFILE, 1200, 1000, 0.45, 0.70, 0.0, 600, 200, 1500);
+    }
+
+    // Экспресс-лифт: безредукторный привод с рекуперацией, тяжелее и мощнее
+    public static EnergyModel express() {
+        return new EnergyModel(EXPRESS_PROFILE, 2200, 1600, 0.45, 0.85, 0.60, 900, 350, 2500);
+    }
+
+    // ГЕТТЕРЫ
+    public String getName() {
+        return name;
+    }
+
+    public double getStandbyWatts() {
+        return standbyWatts;
+    }
+
+    public double getDoorCycleJoules() {
+        return doorCycleJoules;
+    }
+
+    // РАСЧЁТ
+    // Энергия поездки (Дж): > 0 - потребление, < 0 - возврат в сеть
+    public double tripJoules(int floors, boolean direction, int passengers) {
+        if (floors <= 0) {
+            return 0;
+        }
+
+        double height = floors * FLOOR_HEIGHT_METERS;
+        double loadKg = Math.min(Math.max(passengers, 0) * PASSENGER_MASS_KG, ratedLoadKg);
+
+        // Перевес кабины над противовесом: > 0 - кабина тяжелее
+        double imbalanceKg = loadKg - balanceRatio * ratedLoadKg;
+        double potential = imbalanceKg * GRAVITY * height * (direction == UP ? 1 : -1);
+
+        double motoring = potential >= 0
+                ? potential / driveEfficiency
+                : potential * regenEfficiency;
+
+        return runningLossNewtons * height / driveEfficiency + motoring;
+    }
+
+    // Потребление в простое (Дж)
+    public double standbyJoules(long millis) {
+        return standbyWatts * millis / 1000.0;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (car " + (int) carMassKg + " kg, rated " + (int) ratedLoadKg +
+                " kg, regen " + (int) (regenEfficiency * 100) + "%)";
+    }
+}
@@ -0,0 +1,194 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Состояние всех лифтов в виде структуры массивов (struct-of-arrays)
+ * Индекс в массивах = номер лифта - 1
+ *
+ * Потокобезопасность:
+ * - каждый элемент пишет только поток своего лифта (release-запись через VarHandle);
+ *   исключение - taskCount: очередь пополняет диспетчер, разбирает лифт, поэтому счётчик
+ *   меняется только атомарными приращениями (addTaskCount), без перезаписи размером очереди
+ * - одиночные чтения - acquire через VarHandle
+ * - сканирование (счёт кандидатов, панель, агрегаты) читает массивы обычным циклом без барьеров:
+ *   снимок гоночный - элементы разных лифтов и полей одного лифта могут быть из разных моментов,
+ *   значения int и byte не рвутся; для расчёта счёта и отображения этого достаточно
+ *
+ * Массивы примитивов лежат в памяти подряд, поэтому проход по тысячам лифтов
+ * не прыгает по разбросанным объектам с volatile полями
+ */
+public final class FleetState implements Constants {
+
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+    private static final Status[] STATUSES = Status.values();
+
+    public static final byte TRUE = 1;
+    public static final byte FALSE = 0;
+
+    final int size;
+    final int[] currentFloor;
+    final int[] targetFloor;
+    final int[] taskCount;
+    final int[] bank;
+    final byte[] status;     // Status.ordinal()
+    final byte[] direction;  // TRUE - вверх
+    final byte[] processing; // TRUE - выполняет команду
+
+    // План остановок: до PLAN_STOPS ближайших остановок лифта подряд (индекс * PLAN_STOPS),
+    // остановка - stopKey(этаж, направление), UNKNOWN_VALUE - свободный слот
+    final int[] plan;
+
+    // Лифты банка занимают в массивах непрерывный диапазон [bankStart[b], bankStart[b + 1])
+    // (номера лифтов раздаются банкам по порядку); строится один раз до запуска потоков
+    int[] bankStart;
+
+    public FleetState(int size) {
+        this.size = size;
+        this.currentFloor = new int[size];
+        this.targetFloor = new int[size];
+        this.taskCount = new int[size];
+        this.bank = new int[size];
+        this.status = new byte[size];
+        this.direction = new byte[size];
+        this.processing = new byte[size];
+        this.plan = new int[size * PLAN_STOPS];
+        this.bankStart = new int[] {0, size};
+        Arrays.fill(plan, UNKNOWN_VALUE);
+
+        for (int i = 0; i < size; i++) {
+            currentFloor[i] = MIN_FLOORS;
+            targetFloor[i] = MIN_FLOORS;
+            status[i] = (byte) Status.STOPPED.ordinal();
+            direction[i] = TRUE;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // ЧТЕНИЕ ОТДЕЛЬНЫХ ЭЛЕМЕНТОВ
+    public int getCurrentFloor(int index) {
+        return (int) INTS.getAcquire(currentFloor, index);
+    }
+
+    public int getTargetFloor(int index) {
+        return (int) INTS.getAcquire(targetFloor, index);
+    }
+
+    public int getTaskCount(int index) {
+        return (int) INTS.getAcquire(taskCount, index);
+    }
+
+    public int getBank(int index) {
+        return (int) INTS.getAcquire(bank, index);
+    }
+
+    public Status getStatus(int index) {
+        return STATUSES[(byte) BYTES.getAcquire(status, index)];
+    }
+
+    public boolean getDirection(int index) {
+        return (byte) BYTES.getAcquire(direction, index) == TRUE;
+    }
+
+    public boolean isProcessing(int index) {
+        return (byte) BYTES.getAcquire(processing, index) == TRUE;
+    }
+
+    // Есть ли в плане лифта остановка на этаже в этом направлении (гоночное чтение)
+    public boolean hasPlannedStop(int index, int floor, boolean up) {
+        int key = stopKey(floor, up);
+        int base = index * PLAN_STOPS;
+        for (int k = base; k < base + PLAN_STOPS && plan[k] != UNKNOWN_VALUE; k++) {
+            if (plan[k] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static int stopKey(int floor, boolean up) {
+        return floor * 2 + (up ? 1 : 0);
+    }
+
+    // ЗАПИСЬ (только из потока своего лифта или до его запуска)
+    public void setCurrentFloor(int index, int floor) {
+        INTS.setRelease(currentFloor, index, floor);
+    }
+
+    public void setTargetFloor(int index, int floor) {
+        INTS.setRelease(targetFloor, index, floor);
+    }
+
+    // Единственное поле с несколькими писателями: только приращения (+1 постановка, -1 выборка)
+    public void addTaskCount(int index, int delta) {
+        INTS.getAndAdd(taskCount, index, delta);
+    }
+
+    public void setBank(int index, int bankIndex) {
+        INTS.setRelease(bank, index, bankIndex);
+    }
+
+    // Диапазоны банков по уже выставленным bank[] (до запуска потоков)
+    public void indexBanks(int bankCount) {
+        int[] start = new int[bankCount + 1];
+        for (int i = 0; i < size; i++) {
+            if (i > 0 && bank[i] < bank[i - 1]) {
+                throw new IllegalStateException("Elevator banks are not contiguous at index " + i);
+            }
+            start[bank[i] + 1]++;
+        }
+        for (int b = 0; b < bankCount; b++) {
+            start[b + 1] += start[b];
+        }
+        bankStart = start;
+    }
+
+    public void setStatus(int index, Status newStatus) {
+        BYTES.setRelease(status, index, (byte) newStatus.ordinal());
+    }
+
+    public void setDirection(int index, boolean up) {
+        BYTES.setRelease(direction, index, up ? TRUE : FALSE);
+    }
+
+    public void setProcessing(int index, boolean value) {
+        BYTES.setRelease(processing, index, value ? TRUE : FALSE);
+    }
+
+    // План остановок: первые PLAN_STOPS ключей, остальные слоты освобождаются
+    // Читатель может увидеть смесь старого и нового плана - как и остальной снимок, он приблизителен
+    public void setPlan(int index, int[] keys, int count) {
+        int base = index * PLAN_STOPS;
+        for (int k = 0; k < PLAN_STOPS; k++) {
+            INTS.setRelease(plan, base + k, k < count ? keys[k] : UNKNOWN_VALUE);
+        }
+    }
+
+    public void clearPlan(int index) {
+        setPlan(index, null, 0);
+    }
+
+    // АГРЕГАТЫ (проход по массивам)
+    public int totalTaskCount() {
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            total += taskCount[i];
+        }
+        return total;
+    }
+
+    public int idleCount() {
+        byte stopped = (byte) Status.STOPPED.ordinal();
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (status[i] == stopped && taskCount[i] == 0 && processing[i] == FALSE) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
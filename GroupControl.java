@@ -0,0 +1,103 @@
+import java.util.Arrays;
+
+/**
+ * Коллективное управление группой лифтов (GroupMode.COLLECTIVE)
+ *
+ * - Лифты публикуют в FleetState план ближайших остановок (этаж и направление);
+ *   лифт, который и так остановится на этаже вызова в нужную сторону, получает бонус,
+ *   а вызов не отправляет к тому же этажу второй лифт
+ * - Интервал (headway): движение парка - кольцо вверх и вниз длиной 2 * (этажей - 1),
+ *   позиция лифта - точка на кольце по этажу и направлению; идеальный интервал между
+ *   соседними лифтами группы - длина кольца / число лифтов
+ * - Теснота точки - сумма недостач интервала до лифтов ближе идеального; штраф кандидата -
+ *   насколько теснее станет у точки вызова по сравнению с его текущей позицией
+ *   (лифт уходит из разреженного участка в сгусток - штраф, из сгустка - бонус)
+ * - Позиции сортируются один раз на решение, теснота - бинарный поиск и проход
+ *   по соседям в пределах интервала; экземпляр на поток, буферы переиспользуются
+ */
+final class GroupControl implements Constants {
+
+    private static final ThreadLocal<GroupControl> LOCAL = ThreadLocal.withInitial(GroupControl::new);
+
+    // Позиции кандидатов: (позиция << 32) | индекс лифта, по возрастанию
+    private long[] sorted = new long[0];
+    private int[] position = new int[0];
+    private int count;
+    private int ring;
+    private int gap;
+
+    private GroupControl() {
+    }
+
+    // Снимок позиций лифтов подходящих банков (гоночное чтение массивов)
+    static GroupControl prepare(FleetState state, boolean[] eligible, int maxFloors) {
+        GroupControl group = LOCAL.get();
+        if (group.position.length < state.size) {
+            group.position = new int[state.size];
+            group.sorted = new long[state.size];
+        }
+
+        group.ring = Math.max(2 * (maxFloors - MIN_FLOORS), 1);
+        group.count = 0;
+        for (int i = 0; i < state.size; i++) {
+            if (!eligible[state.bank[i]]) {
+                continue;
+            }
+            int pos = group.positionOf(state.currentFloor[i], state.direction[i] == FleetState.TRUE);
+            group.position[i] = pos;
+            group.sorted[group.count++] = ((long) pos << 32) | i;
+        }
+        Arrays.sort(group.sorted, 0, group.count);
+        group.gap = group.ring / Math.max(group.count, 1);
+        return group;
+    }
+
+    // Точка на кольце: вверх - от нижнего этажа, вниз - обратный путь от верхнего
+    private int positionOf(int floor, boolean up) {
+        int offset = floor - MIN_FLOORS;
+        return up ? offset : (ring - offset) % ring;
+    }
+
+    // Штраф за интервал при назначении лифта i на вызов с этажа floor в сторону up
+    int headwayPenalty(int i, int floor, boolean up) {
+        if (count < 2 || gap == 0) {
+            return 0;
+        }
+        int deficit = crowding(positionOf(floor, up), i) - crowding(position[i], i);
+        return deficit * FINE_HEADWAY_PER_FLOOR;
+    }
+
+    // Сумма недостач интервала от точки до лифтов ближе идеального (кроме лифта exclude)
+    private int crowding(int pos, int exclude) {
+        int start = Arrays.binarySearch(sorted, 0, count, (long) pos << 32);
+        if (start < 0) {
+            start = -start - 1;
+        }
+
+        int total = 0;
+        int visited = 0;
+        // Вперёд по кольцу от точки
+        for (int k = 0; k < count && visited < count; k++, visited++) {
+            long entry = sorted[(start + k) % count];
+            int distance = Math.floorMod((int) (entry >>> 32) - pos, ring);
+            if (distance >= gap) {
+                break;
+            }
+            if ((int) entry != exclude) {
+                total += gap - distance;
+            }
+        }
+        // Назад (без уже учтённых впереди)
+        for (int k = 1; k <= count && visited < count; k++, visited++) {
+            long entry = sorted[Math.floorMod(start - k, count)];
+            int distance = Math.floorMod(pos - (int) (entry >>> 32), ring);
+            if (distance >= gap) {
+                break;
+            }
+            if ((int) entry != exclude) {
+                total += gap - distance;
+            }
+        }
+        return total;
+    }
+}
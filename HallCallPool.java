@@ -0,0 +1,205 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Общий пул вызовов для позднего назначения лифта (late binding)
+ *
+ * - Вызов не привязывается к лифту в момент dispatch(): он ждёт в пуле,
+ *   проиндексированном по этажу и направлению
+ * - Освободившийся лифт сам забирает ближайший вызов из обслуживаемых им этажей
+ *   (после высадки пассажира первым проверяется этаж, где лифт стоит)
+ * - Захват - compareAndSet владельца вызова: два лифта не возьмут один вызов
+ * - Захват идёт под монитором команды, как и присоединение пассажиров (Command.tryMerge):
+ *   проверка целей лифтом, CAS и закрытие посадки - одно действие, поэтому пассажир
+ *   с целью, которую лифт не обслуживает, не присоединится между захватом и посадкой
+ * - Лок берут только публикация и удаление опустевшей очереди из индекса
+ * - Ожидание свободных лифтов не теряет сигналов: номер версии пула читается
+ *   до попытки захвата и сверяется под локом перед сном
+ */
+public final class HallCallPool implements Constants {
+
+    // Вызов в пуле
+    static final class HallCall {
+        private static final int UNCLAIMED = 0;
+
+        final Command command;
+        private final AtomicInteger owner = new AtomicInteger(UNCLAIMED);
+
+        HallCall(Command command) {
+            this.command = command;
+        }
+
+        boolean isClaimed() {
+            return owner.get() != UNCLAIMED;
+        }
+
+        // true - вызов достался этому лифту; посадка закрыта в том же действии
+        boolean claim(Elevator elevator) {
+            synchronized (command) {
+                if (!elevator.servesLeg(command) || !owner.compareAndSet(UNCLAIMED, elevator.getID())) {
+                    return false;
+                }
+                command.closeBoarding();
+                return true;
+            }
+        }
+    }
+
+    // Ключ индекса: этаж и направление (нечётный - вверх)
+    private final ConcurrentSkipListMap<Integer, ConcurrentLinkedQueue<HallCall>> calls;
+    private final AtomicInteger size;
+    private final AtomicLong version;
+
+    // Ожидание свободных лифтов
+    private final ReentrantLock lock;
+    private final Condition published;
+
+    public HallCallPool() {
+        this.calls = new ConcurrentSkipListMap<>();
+        this.size = new AtomicInteger();
+        this.version = new AtomicLong();
+        this.lock = new ReentrantLock();
+        this.published = lock.newCondition();
+    }
+
+    private static int key(int floor, boolean direction) {
+        return floor * 2 + (direction == UP ? 1 : 0);
+    }
+
+    private static int floorOf(int key) {
+        return key / 2;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    // ПУБЛИКАЦИЯ
+    // false - пул заполнен
+    public boolean publish(Command command) {
+        if (size.incrementAndGet() > PENDING_POOL_CAPACITY) {
+            size.decrementAndGet();
+            return false;
+        }
+
+        lock.lock();
+        try {
+            calls.computeIfAbsent(key(command.getCallFloor(), command.getDirection()),
+                    k -> new ConcurrentLinkedQueue<>()).add(new HallCall(command));
+            version.incrementAndGet();
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    // ЗАХВАТ
+    // Ближайший к этажу лифта вызов среди обслуживаемых им этажей
+    public Command claimNearest(Elevator elevator) {
+        int floor = elevator.getCurrentFloor();
+        Integer up = calls.ceilingKey(key(floor, DOWN));
+        Integer down = calls.lowerKey(key(floor, DOWN));
+
+        while (up != null || down != null) {
+            boolean takeUp = down == null ||
+                    (up != null && floorOf(up) - floor <= floor - floorOf(down));
+            int key = takeUp ? up : down;
+
+            Command command = claimAt(key, elevator);
+            if (command != null) {
+                return command;
+            }
+
+            if (takeUp) {
+                up = calls.higherKey(key);
+            } else {
+                down = calls.lowerKey(key);
+            }
+        }
+        return null;
+    }
+
+    // Вызов с конкретного этажа в конкретную сторону (остановка по пути)
+    public Command claimAt(int floor, boolean direction, Elevator elevator) {
+        return claimAt(key(floor, direction), elevator);
+    }
+
+    private Command claimAt(int key, Elevator elevator) {
+        ConcurrentLinkedQueue<HallCall> queue = calls.get(key);
+        if (queue == null) {
+            return null;
+        }
+
+        for (HallCall call : queue) {
+            if (call.isClaimed()) {
+                continue;
+            }
+            if (call.claim(elevator)) {
+                queue.remove(call);
+                size.decrementAndGet();
+                if (queue.isEmpty()) {
+                    removeIfEmpty(key, queue);
+                }
+                return call.command;
+            }
+        }
+        return null;
+    }
+
+    // Пустая очередь убирается из индекса под тем же локом, что и публикация:
+    // вызов не попадёт в уже удалённую очередь
+    private void removeIfEmpty(int key, ConcurrentLinkedQueue<HallCall> queue) {
+        lock.lock();
+        try {
+            if (queue.isEmpty()) {
+                calls.remove(key, queue);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ОЖИДАНИЕ
+    // Сон свободного лифта до публикации нового вызова (или до таймаута)
+    public void awaitCall(long seenVersion, long timeoutMillis) throws InterruptedException {
+        lock.lock();
+        try {
+            if (version.get() == seenVersion) {
+                published.await(timeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Снимок незахваченных вызовов (для контрольной точки)
+    public List<Command> snapshot() {
+        List<Command> result = new ArrayList<>();
+        for (Map.Entry<Integer, ConcurrentLinkedQueue<HallCall>> entry : calls.entrySet()) {
+            for (HallCall call : entry.getValue()) {
+                if (!call.isClaimed()) {
+                    result.add(call.command);
+                }
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        calls.clear();
+        size.set(0);
+    }
+}
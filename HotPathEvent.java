@@ -0,0 +1,72 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Событие JFR со сводкой Profiler: одно событие на замер раз в секунду записи
+ *
+ * - Периодическое событие: JFR сам вызывает сбор, только пока идёт запись и событие включено
+ * - Значения накопительные с начала профилирования (или с stats reset); приращения
+ *   за интервал считаются разностью соседних событий в JDK Mission Control
+ * - Запуск с записью: java -XX:StartFlightRecording=filename=run.jfr Main --profile
+ */
+@Name("elevator.HotPath")
+@Label("Hot Path Profile")
+@Category({"Elevator", "Profiling"})
+@Description("Per-probe latency summary of dispatcher and elevator hot paths, all threads")
+@Period("1 s")
+@StackTrace(false)
+public final class HotPathEvent extends Event {
+
+    @Label("Probe")
+    String probe;
+
+    @Label("Count")
+    long count;
+
+    @Label("Total")
+    @Timespan(Timespan.NANOSECONDS)
+    long total;
+
+    @Label("Mean")
+    @Timespan(Timespan.NANOSECONDS)
+    long mean;
+
+    @Label("99th Percentile")
+    @Timespan(Timespan.NANOSECONDS)
+    long p99;
+
+    @Label("Max")
+    @Timespan(Timespan.NANOSECONDS)
+    long max;
+
+    // Регистрация периодического сбора (один раз при старте)
+    public static void register() {
+        FlightRecorder.addPeriodicEvent(HotPathEvent.class, HotPathEvent::emit);
+    }
+
+    private static void emit() {
+        if (!Profiler.isEnabled()) {
+            return;
+        }
+        for (Profiler.Summary summary : Profiler.summarize()) {
+            if (summary.count == 0) {
+                continue;
+            }
+            HotPathEvent event = new HotPathEvent();
+            event.probe = summary.probe.getLabel();
+            event.count = summary.count;
+            event.total = summary.totalNanos;
+            event.mean = (long) summary.meanNanos();
+            event.p99 = summary.percentileNanos(0.99);
+            event.max = summary.maxNanos;
+            event.commit();
+        }
+    }
+}
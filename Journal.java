@@ -0,0 +1,267 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * JOURNAL - Журнал решений диспетчера (append-only, бинарный)
+ *
+ * - Записывается каждая распределённая команда со счётом всех кандидатов,
+ *   начало/завершение команд и каждая смена состояния лифта
+ * - Файл размечен заранее сегментами по JOURNAL_SEGMENT_BYTES и отображён в память:
+ *   запись события - несколько put() в MappedByteBuffer под коротким локом
+ * - Сброс на диск групповой: отдельный поток раз в JOURNAL_FLUSH_MILLIS вызывает force()
+ * - Запись не пересекает границу сегмента: хвост сегмента помечается PAD; заполненный
+ *   сегмент писатель только отдаёт потоку сброса (force() и отпускание отображения - там),
+ *   смена сегмента не держит писателей на синхронизации с диском
+ * - Время записей - по часам модели (SimulationClock диспетчера): в виртуальном
+ *   и ускоренном прогоне журнал совпадает по времени с прогоном
+ *
+ * Формат: заголовок (HEADER_SIZE байт, время старта - по часам модели),
+ * далее записи [тип][время модели, нс от старта журнала][поля]
+ * Неиспользованная часть файла заполнена нулями (тип END)
+ * Восстановление состояния - JournalReplayer
+ */
+public final class Journal implements Constants {
+
+    // ФОРМАТ
+    static final int MAGIC = 0x454A4E4C; // "EJNL"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 32;
+
+    static final byte END = 0;
+    static final byte DISPATCH = 1;
+    static final byte STATE = 2;
+    static final byte START = 3;
+    static final byte COMPLETE = 4;
+    static final byte PAD = 0x7F;
+
+    static final int DISPATCH_HEADER_SIZE = 1 + 8 + 8 + 1 + 4 + 4 + 1 + 4 + 4;
+    static final int STATE_SIZE = 1 + 8 + 4 + 4 + 4 + 1 + 1;
+    static final int COMMAND_EVENT_SIZE = 1 + 8 + 4 + 8;
+
+    // ПЕРЕМЕННЫЕ СОСТОЯНИЯ
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Path file;
+    private final FileChannel channel;
+    private final SimulationClock clock;
+    private final long startMillis;
+    private final Thread flusher;
+    private volatile MappedByteBuffer segment;
+    private long segmentStart;
+    private final ArrayDeque<MappedByteBuffer> retired = new ArrayDeque<>(); // под локом, ждут force()
+    private volatile boolean dirty;
+    private volatile boolean closed;
+
+    private Journal(Path file, FileChannel channel, SimulationClock clock) {
+        this.file = file;
+        this.channel = channel;
+        this.clock = clock;
+        this.startMillis = clock.nowMillis();
+        this.flusher = new Thread(this::flushLoop, "Journal-Flusher");
+        this.flusher.setDaemon(true);
+    }
+
+    // Создание нового журнала (существующий файл перезаписывается)
+    public static Journal create(Path file, int elevatorCount, int maxFloors,
+                                 SimulationClock clock) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        Journal journal = new Journal(file, channel, clock);
+        journal.mapSegment(0);
+        journal.segment.putInt(MAGIC)
+                .putShort(VERSION)
+                .putLong(journal.startMillis)
+                .putInt(elevatorCount)
+                .putInt(maxFloors)
+                .putInt(JOURNAL_SEGMENT_BYTES);
+        journal.segment.position(HEADER_SIZE);
+        journal.flusher.start();
+        return journal;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // Время модели от старта журнала (нс; часы модели идут с точностью до мс)
+    public long elapsedNanos() {
+        return (clock.nowMillis() - startMillis) * 1_000_000L;
+    }
+
+    // ЗАПИСИ
+    // Решение диспетчера: команда, выбранный лифт и счёт всех кандидатов
+    public void recordDispatch(Command command, int chosenId, int[] candidateIds, int[] scores, int count) {
+        int maxCandidates = (JOURNAL_SEGMENT_BYTES - HEADER_SIZE - DISPATCH_HEADER_SIZE) / 8;
+        int stored = Math.min(count, maxCandidates);
+
+        lock.lock();
+        try {
+            if (!reserve(DISPATCH_HEADER_SIZE + stored * 8)) {
+                return;
+            }
+            segment.put(DISPATCH)
+                    .putLong(elapsedNanos())
+                    .putLong(command.getSequence())
+                    .put((byte) command.getMode().ordinal())
+                    .putInt(command.getCallFloor())
+                    .putInt(command.getTargetFloor())
+                    .put(command.getDirection() ? FleetState.TRUE : FleetState.FALSE)
+                    .putInt(chosenId)
+                    .putInt(stored);
+            for (int i = 0; i < stored; i++) {
+                segment.putInt(candidateIds[i]).putInt(scores[i]);
+            }
+            dirty = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Команда снята из очереди лифта (вытеснение): DISPATCH без выбранного лифта
+    public void recordWithdraw(Command command) {
+        recordDispatch(command, 0, null, null, 0);
+    }
+
+    // Смена состояния лифта
+    public void recordState(int elevatorId, int floor, int targetFloor, Status status, boolean direction) {
+        lock.lock();
+        try {
+            if (!reserve(STATE_SIZE)) {
+                return;
+            }
+            segment.put(STATE)
+                    .putLong(elapsedNanos())
+                    .putInt(elevatorId)
+                    .putInt(floor)
+                    .putInt(targetFloor)
+                    .put((byte) status.ordinal())
+                    .put(direction ? FleetState.TRUE : FleetState.FALSE);
+            dirty = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Лифт взял команду из очереди
+    public void recordStart(int elevatorId, Command command) {
+        recordCommandEvent(START, elevatorId, command);
+    }
+
+    // Лифт выполнил команду
+    public void recordComplete(int elevatorId, Command command) {
+        recordCommandEvent(COMPLETE, elevatorId, command);
+    }
+
+    private void recordCommandEvent(byte type, int elevatorId, Command command) {
+        lock.lock();
+        try {
+            if (!reserve(COMMAND_EVENT_SIZE)) {
+                return;
+            }
+            segment.put(type)
+                    .putLong(elapsedNanos())
+                    .putInt(elevatorId)
+                    .putLong(command.getSequence());
+            dirty = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // СЕГМЕНТЫ
+    // Место под запись; при нехватке хвост сегмента помечается PAD и размечается следующий
+    private boolean reserve(int bytes) {
+        if (closed) {
+            return false;
+        }
+        if (segment.remaining() >= bytes) {
+            return true;
+        }
+
+        // Запись, заполнившая сегмент ровно до конца, места под метку не оставляет:
+        // читатель и так переходит к следующему сегменту по его концу
+        if (segment.hasRemaining()) {
+            segment.put(PAD);
+        }
+        try {
+            mapSegment(segmentStart + JOURNAL_SEGMENT_BYTES);
+            return true;
+        } catch (IOException e) {
+            Logger.error(JOURNAL, "Cannot extend journal: " + e.getMessage());
+            closed = true;
+            return false;
+        }
+    }
+
+    // Заполненный сегмент уходит в очередь потока сброса: force() под локом писателей
+    // остановил бы их всех на синхронизации 4 МБ с диском
+    private void mapSegment(long start) throws IOException {
+        if (segment != null) {
+            retired.add(segment);
+            dirty = true;
+        }
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, start, JOURNAL_SEGMENT_BYTES);
+        segmentStart = start;
+    }
+
+    // ГРУППОВОЙ СБРОС НА ДИСК
+    private void flushLoop() {
+        while (!closed) {
+            try {
+                Thread.sleep(JOURNAL_FLUSH_MILLIS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            flush();
+        }
+    }
+
+    // force() вне лока: писатели не ждут синхронизации страниц с диском
+    // Заполненные сегменты после force() больше не держатся: отображение отпускает GC
+    public void flush() {
+        if (!dirty || closed) {
+            return;
+        }
+        MappedByteBuffer current;
+        MappedByteBuffer[] full;
+        lock.lock();
+        try {
+            dirty = false;
+            current = segment;
+            full = retired.toArray(new MappedByteBuffer[0]);
+            retired.clear();
+        } finally {
+            lock.unlock();
+        }
+        for (MappedByteBuffer buffer : full) {
+            buffer.force();
+        }
+        current.force();
+    }
+
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (MappedByteBuffer buffer : retired) {
+                buffer.force();
+            }
+            retired.clear();
+            segment.force();
+            channel.close();
+        } catch (IOException e) {
+            Logger.error(JOURNAL, "Cannot close journal: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+        flusher.interrupt();
+    }
+}
@@ -0,0 +1,283 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Восстановление состояния системы по журналу Journal на любой момент времени
+ *
+ * Проход по записям до заданного момента:
+ * - STATE обновляет этаж, цель, статус и направление лифта
+ * - DISPATCH ставит команду в очередь выбранного лифта и запоминает счёт кандидатов;
+ *   DISPATCH без лифта (номер 0) - команда снята из очереди
+ * - START переводит команду из очереди в работу, COMPLETE завершает её
+ *
+ * Запуск отдельно: java JournalReplayer <file> [seconds]
+ */
+public final class JournalReplayer implements Constants {
+
+    private static final Status[] STATUSES = Status.values();
+    private static final Command.Mode[] MODES = Command.Mode.values();
+
+    // Состояние лифта на момент восстановления
+    static final class CarState {
+        int floor = MIN_FLOORS;
+        int target = MIN_FLOORS;
+        Status status = Status.STOPPED;
+        boolean direction = UP;
+        long current = UNKNOWN_VALUE;
+        final ArrayDeque<Long> pending = new ArrayDeque<>();
+    }
+
+    // Команда из записи DISPATCH
+    static final class CommandInfo {
+        final Command.Mode mode;
+        final int callFloor;
+        final int targetFloor;
+        final boolean direction;
+
+        CommandInfo(Command.Mode mode, int callFloor, int targetFloor, boolean direction) {
+            this.mode = mode;
+            this.callFloor = callFloor;
+            this.targetFloor = targetFloor;
+            this.direction = direction;
+        }
+
+        @Override
+        public String toString() {
+            String dir = direction ? UP_STR : DOWN_STR;
+            String target = targetFloor == UNKNOWN_VALUE ? "UNKNOWN" : String.valueOf(targetFloor);
+            return mode + " " + callFloor + " -> " + target + ", " + dir;
+        }
+    }
+
+    // Результат восстановления
+    public static final class Snapshot {
+        long startEpochMillis; // по часам модели
+        int elevatorCount;
+        int maxFloors;
+        long atNanos;
+        long lastEventNanos;
+        int events;
+        CarState[] cars;
+        final Map<Long, CommandInfo> commands = new HashMap<>();
+
+        // Последнее решение диспетчера
+        long lastSequence = UNKNOWN_VALUE;
+        int lastChosen = UNKNOWN_VALUE;
+        int[] lastCandidates = new int[0];
+        int[] lastScores = new int[0];
+
+        public void print() {
+            Logger.printHeader(REPLAY_HEADER);
+            long shownNanos = Math.min(atNanos, lastEventNanos);
+            Logger.print(String.format(Locale.ROOT, "State at %.3fs (%d events)", shownNanos / 1e9, events));
+            Logger.print("Elevators: " + elevatorCount + ", floors: " + maxFloors);
+            Logger.printSeparator();
+
+            for (int i = 0; i < cars.length; i++) {
+                CarState car = cars[i];
+                StringBuilder sb = new StringBuilder();
+                sb.append("Elevator №").append(i + 1)
+                        .append(" | Floor: ").append(car.floor)
+                        .append(" | ").append(car.status);
+                if (car.status == Status.MOVING) {
+                    sb.append(' ').append(car.direction ? "↑" : "↓").append(" to ").append(car.target);
+                }
+                if (car.current != UNKNOWN_VALUE) {
+                    sb.append(" | Serving #").append(car.current).append(' ').append(commands.get(car.current));
+                }
+                if (!car.pending.isEmpty()) {
+                    sb.append(" | Queue: ").append(car.pending.size());
+                }
+                Logger.print(sb.toString());
+            }
+
+            if (lastSequence != UNKNOWN_VALUE) {
+                Logger.printSeparator();
+                Logger.print("Last decision: #" + lastSequence + " " + commands.get(lastSequence) +
+                        " -> Elevator №" + lastChosen);
+                for (int i = 0; i < lastCandidates.length; i++) {
+                    Logger.print("   Elevator №" + lastCandidates[i] + " score " + lastScores[i]);
+                }
+            }
+            Logger.printSeparator();
+        }
+    }
+
+    private JournalReplayer() {
+    }
+
+    // Восстановление состояния на момент atNanos от старта журнала
+    public static Snapshot replay(Path file, long atNanos) throws IOException {
+        Snapshot snapshot = new Snapshot();
+        snapshot.atNanos = atNanos;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < Journal.HEADER_SIZE) {
+                throw new IOException("Journal too short");
+            }
+
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Journal.HEADER_SIZE);
+            if (header.getInt() != Journal.MAGIC || header.getShort() != Journal.VERSION) {
+                throw new IOException("Not a journal file: " + file);
+            }
+            snapshot.startEpochMillis = header.getLong();
+            snapshot.elevatorCount = header.getInt();
+            snapshot.maxFloors = header.getInt();
+            int segmentBytes = header.getInt();
+
+            snapshot.cars = new CarState[snapshot.elevatorCount];
+            for (int i = 0; i < snapshot.cars.length; i++) {
+                snapshot.cars[i] = new CarState();
+            }
+
+            for (long start = 0; start < size; start += segmentBytes) {
+                long length = Math.min(segmentBytes, size - start);
+                ByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                if (start == 0) {
+                    segment.position(Journal.HEADER_SIZE);
+                }
+                if (!replaySegment(segment, snapshot)) {
+                    break;
+                }
+            }
+        }
+
+        return snapshot;
+    }
+
+    // false - достигнут конец журнала или заданный момент времени
+    private static boolean replaySegment(ByteBuffer segment, Snapshot snapshot) {
+        while (segment.hasRemaining()) {
+            int recordStart = segment.position();
+            byte type = segment.get();
+
+            if (type == Journal.END) {
+                return false;
+            }
+            if (type == Journal.PAD) {
+                return true;
+            }
+
+            long nanos = segment.getLong();
+            if (nanos > snapshot.atNanos) {
+                segment.position(recordStart);
+                return false;
+            }
+            snapshot.lastEventNanos = nanos;
+            snapshot.events++;
+
+            switch (type) {
+                case Journal.DISPATCH:
+                    applyDispatch(segment, snapshot);
+                    break;
+                case Journal.STATE:
+                    applyState(segment, snapshot);
+                    break;
+                case Journal.START:
+                case Journal.COMPLETE:
+                    applyCommandEvent(type, segment, snapshot);
+                    break;
+                default:
+                    Logger.error(JOURNAL, "Corrupted record type " + type + " at offset " + recordStart);
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private static void applyDispatch(ByteBuffer segment, Snapshot snapshot) {
+        long sequence = segment.getLong();
+        Command.Mode mode = MODES[segment.get()];
+        int callFloor = segment.getInt();
+        int targetFloor = segment.getInt();
+        boolean direction = segment.get() == FleetState.TRUE;
+        int chosen = segment.getInt();
+        int count = segment.getInt();
+
+        int[] candidates = new int[count];
+        int[] scores = new int[count];
+        for (int i = 0; i < count; i++) {
+            candidates[i] = segment.getInt();
+            scores[i] = segment.getInt();
+        }
+
+        snapshot.commands.put(sequence, new CommandInfo(mode, callFloor, targetFloor, direction));
+        CarState car = carById(snapshot, chosen);
+        if (car == null) {
+            for (CarState other : snapshot.cars) {
+                other.pending.remove(sequence);
+            }
+            return;
+        }
+
+        snapshot.lastSequence = sequence;
+        snapshot.lastChosen = chosen;
+        snapshot.lastCandidates = candidates;
+        snapshot.lastScores = scores;
+        car.pending.add(sequence);
+    }
+
+    private static void applyState(ByteBuffer segment, Snapshot snapshot) {
+        CarState car = carById(snapshot, segment.getInt());
+        int floor = segment.getInt();
+        int target = segment.getInt();
+        Status status = STATUSES[segment.get()];
+        boolean direction = segment.get() == FleetState.TRUE;
+
+        if (car != null) {
+            car.floor = floor;
+            car.target = target;
+            car.status = status;
+            car.direction = direction;
+        }
+    }
+
+    private static void applyCommandEvent(byte type, ByteBuffer segment, Snapshot snapshot) {
+        CarState car = carById(snapshot, segment.getInt());
+        long sequence = segment.getLong();
+
+        if (car == null) {
+            return;
+        }
+        if (type == Journal.START) {
+            car.pending.remove(sequence);
+            car.current = sequence;
+        } else if (car.current == sequence) {
+            car.current = UNKNOWN_VALUE;
+        }
+    }
+
+    private static CarState carById(Snapshot snapshot, int elevatorId) {
+        if (elevatorId < 1 || elevatorId > snapshot.cars.length) {
+            return null;
+        }
+        return snapshot.cars[elevatorId - 1];
+    }
+
+    // Офлайн-восстановление: java JournalReplayer <file> [seconds]
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            Logger.error(JOURNAL, "Usage: java JournalReplayer <file> [seconds]");
+            return;
+        }
+
+        try {
+            long atNanos = args.length > 1 ? (long) (Double.parseDouble(args[1]) * 1e9) : Long.MAX_VALUE;
+            replay(Paths.get(args[0]), atNanos).print();
+        } catch (NumberFormatException e) {
+            Logger.error(JOURNAL, "Invalid time: " + args[1]);
+        } catch (IOException e) {
+            Logger.error(JOURNAL, "Cannot replay journal: " + e.getMessage());
+        }
+    }
+}
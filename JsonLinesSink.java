@@ -0,0 +1,243 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Файловый приёмник лога в формате JSON Lines
+ *
+ * - Одна строка на событие: {"t":<нс от эпохи>,"level":"...","source":"...","msg":"..."}
+ * - Строки копятся в прямом буфере и уходят в FileChannel одной записью: при заполнении
+ *   буфера и фоновым потоком каждые LOG_FLUSH_MILLIS
+ * - Ротация: после LOG_ROTATE_MILLIS по меткам событий или LOG_ROTATE_BYTES данных файл
+ *   переименовывается в <имя>.1, <имя>.2, ... (больше номер - новее), запись идёт в новый файл
+ * - Ошибка записи отключает приёмник и выводится в лог один раз; остальные приёмники работают
+ */
+public final class JsonLinesSink implements LogSink, Constants {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Path file;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(LOG_SINK_BUFFER_BYTES);
+    private final StringBuilder line = new StringBuilder(256);
+    private final Thread flusher;
+    private FileChannel channel;
+    private long openedNanos = Long.MIN_VALUE; // метка первого события файла
+    private long fileBytes;
+    private int rotations;
+    private volatile boolean closed;
+    private volatile boolean failed;
+
+    private JsonLinesSink(Path file) throws IOException {
+        this.file = file;
+        this.channel = openChannel(file);
+        this.flusher = new Thread(this::flushLoop, "Log-Flusher-" + file.getFileName());
+        this.flusher.setDaemon(true);
+    }
+
+    // Новый файл (существующий перезаписывается)
+    public static JsonLinesSink open(Path file) throws IOException {
+        JsonLinesSink sink = new JsonLinesSink(file);
+        sink.flusher.start();
+        return sink;
+    }
+
+    // Подключение по описанию "[уровни=]файл", уровни через запятую (по умолчанию - все)
+    // false - ошибка описания или файла (уже выведена в лог)
+    public static boolean attach(String spec) {
+        int separator = spec.indexOf('=');
+        String[] levels = separator > 0
+                ? spec.substring(0, separator).toUpperCase(Locale.ROOT).split(",")
+                : new String[0];
+        String path = spec.substring(separator + 1);
+        if (path.isEmpty()) {
+            Logger.error(LOG, "Missing file in " + spec);
+            return false;
+        }
+
+        JsonLinesSink sink;
+        try {
+            sink = open(Paths.get(path));
+        } catch (IOException e) {
+            Logger.error(LOG, "Cannot open " + path + ": " + e.getMessage());
+            return false;
+        }
+        try {
+            Logger.addSink(sink, levels);
+        } catch (IllegalArgumentException e) {
+            sink.close();
+            Logger.error(LOG, e.getMessage());
+            return false;
+        }
+        Logger.info(LOG, "JSON log " + path + (levels.length > 0 ? " for " + String.join(",", levels) : ""));
+        return true;
+    }
+
+    private static FileChannel openChannel(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // ЗАПИСЬ
+    @Override
+    public void write(long timeNanos, String level, String source, String message) {
+        if (failed || closed) {
+            return;
+        }
+
+        IOException error = null;
+        lock.lock();
+        try {
+            if (openedNanos == Long.MIN_VALUE) {
+                openedNanos = timeNanos;
+            } else if (timeNanos - openedNanos >= LOG_ROTATE_MILLIS * 1_000_000L || fileBytes >= LOG_ROTATE_BYTES) {
+                rotate();
+                openedNanos = timeNanos;
+            }
+
+            line.setLength(0);
+            line.append("{\"t\":").append(timeNanos).append(",\"level\":\"");
+            appendEscaped(line, level).append("\",\"source\":\"");
+            appendEscaped(line, source).append("\",\"msg\":\"");
+            appendEscaped(line, message).append("\"}\n");
+
+            byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > buffer.remaining()) {
+                drain();
+            }
+            if (bytes.length > buffer.capacity()) {
+                writeFully(ByteBuffer.wrap(bytes));
+            } else {
+                buffer.put(bytes);
+            }
+            fileBytes += bytes.length;
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            lock.unlock();
+        }
+        if (error != null) {
+            fail(error);
+        }
+    }
+
+    private static StringBuilder appendEscaped(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                    break;
+            }
+        }
+        return out;
+    }
+
+    // Буфер в файл (под локом)
+    private void drain() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    // РОТАЦИЯ (под локом)
+    private void rotate() throws IOException {
+        drain();
+        channel.close();
+        rotations++;
+        Files.move(file, Paths.get(file + "." + rotations), StandardCopyOption.REPLACE_EXISTING);
+        channel = openChannel(file);
+        fileBytes = 0;
+    }
+
+    // СБРОС И ЗАКРЫТИЕ
+    @Override
+    public void flush() {
+        IOException error = null;
+        lock.lock();
+        try {
+            if (!failed && channel.isOpen()) {
+                drain();
+            }
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            lock.unlock();
+        }
+        if (error != null) {
+            fail(error);
+        }
+    }
+
+    private void flushLoop() {
+        while (!closed) {
+            try {
+                Thread.sleep(LOG_FLUSH_MILLIS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flusher.interrupt();
+        flush();
+        lock.lock();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // данные уже сброшены, ошибка закрытия не важна
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Вне лока приёмника: Logger.error снова придёт в write() и будет пропущен
+    private void fail(IOException e) {
+        if (!failed) {
+            failed = true;
+            Logger.error(LOG, "JSON log " + file + " disabled: " + e.getMessage());
+        }
+    }
+}
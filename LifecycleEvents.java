@@ -0,0 +1,151 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * События JFR жизненного цикла лифтов для анализа прогонов в JDK Mission Control
+ *
+ * - Команда: принята диспетчером (Dispatched), поставлена лифту (Queued), выполнена (Completed)
+ * - Лифт: перемещение от старта до прибытия (Movement), цикл дверей (DoorCycle)
+ * - Длительности - собственное время событий JFR (начало и конец, реальное время)
+ * - Запись выключена - событие не создаётся: вызывающий код проверяет shouldCommit()
+ *   до заполнения полей, JIT убирает объект целиком; стек не пишется
+ * - Связь событий одной команды - по номеру команды (sequence)
+ */
+public final class LifecycleEvents {
+
+    private LifecycleEvents() {
+    }
+
+    @Name("elevator.CommandDispatched")
+    @Label("Command Dispatched")
+    @Category({"Elevator", "Commands"})
+    @Description("Dispatcher processed a request; duration is the dispatch() latency")
+    @StackTrace(false)
+    public static final class Dispatched extends Event {
+        @Label("Sequence")
+        long sequence;
+
+        @Label("Call Floor")
+        int callFloor;
+
+        @Label("Target Floor")
+        int targetFloor;
+
+        @Label("Up")
+        boolean up;
+
+        @Label("Accepted")
+        boolean accepted;
+
+        @Label("Rejection")
+        String rejection;
+    }
+
+    @Name("elevator.CommandQueued")
+    @Label("Command Queued")
+    @Category({"Elevator", "Commands"})
+    @Description("Command entered an elevator queue or was claimed from the hall call pool")
+    @StackTrace(false)
+    public static final class Queued extends Event {
+        @Label("Elevator")
+        int elevatorId;
+
+        @Label("Sequence")
+        long sequence;
+
+        @Label("Call Floor")
+        int callFloor;
+
+        @Label("Target Floor")
+        int targetFloor;
+
+        @Label("Queue Size")
+        int queueSize;
+
+        @Label("Claimed From Pool")
+        boolean claimed;
+
+        static void emit(int elevatorId, Command command, int queueSize, boolean claimed) {
+            Queued event = new Queued();
+            if (event.shouldCommit()) {
+                event.elevatorId = elevatorId;
+                event.sequence = command.getSequence();
+                event.callFloor = command.getCallFloor();
+                event.targetFloor = command.getTargetFloor();
+                event.queueSize = queueSize;
+                event.claimed = claimed;
+                event.commit();
+            }
+        }
+    }
+
+    @Name("elevator.Movement")
+    @Label("Movement")
+    @Category({"Elevator", "Cars"})
+    @Description("Car movement from start to arrival; the stop may differ from the plan after a retarget")
+    @StackTrace(false)
+    public static final class Movement extends Event {
+        @Label("Elevator")
+        int elevatorId;
+
+        @Label("From Floor")
+        int fromFloor;
+
+        @Label("To Floor")
+        int toFloor;
+
+        @Label("Planned Floor")
+        int plannedFloor;
+
+        @Label("Passengers")
+        int passengers;
+
+        @Label("Interrupted")
+        boolean interrupted;
+    }
+
+    @Name("elevator.DoorCycle")
+    @Label("Door Cycle")
+    @Category({"Elevator", "Cars"})
+    @Description("Doors opening, dwell and closing on a floor")
+    @StackTrace(false)
+    public static final class DoorCycle extends Event {
+        @Label("Elevator")
+        int elevatorId;
+
+        @Label("Floor")
+        int floor;
+
+        @Label("Interrupted")
+        boolean interrupted;
+    }
+
+    @Name("elevator.CommandCompleted")
+    @Label("Command Completed")
+    @Category({"Elevator", "Commands"})
+    @Description("Elevator finished a command; duration spans pickup trip and all drop-off stops")
+    @StackTrace(false)
+    public static final class Completed extends Event {
+        @Label("Elevator")
+        int elevatorId;
+
+        @Label("Sequence")
+        long sequence;
+
+        @Label("Pickup Floor")
+        int pickupFloor;
+
+        @Label("Final Floor")
+        int finalFloor;
+
+        @Label("Passengers")
+        int passengers;
+
+        @Label("Stops")
+        int stops;
+    }
+}
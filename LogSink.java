@@ -0,0 +1,20 @@
+/**
+ * Приёмник событий лога
+ *
+ * - Logger раздаёт событие приёмникам, подключённым к его уровню (ELEVATOR, DISPATCH, ...)
+ * - Событие передаётся полями, без форматирования: каждый приёмник сам решает,
+ *   как его записать (консоль - цветной текст, файл - JSON-строка)
+ * - write() вызывается под локом Logger в порядке событий; flush() и close() - из любого потока
+ */
+public interface LogSink extends AutoCloseable {
+
+    // timeNanos - наносекунды от эпохи (на виртуальных часах - время модели)
+    void write(long timeNanos, String level, String source, String message);
+
+    default void flush() {
+    }
+
+    @Override
+    default void close() {
+    }
+}
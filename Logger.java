@@ -1,5 +1,13 @@
+import java.time.Instant;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -8,11 +16,16 @@ import java.util.concurrent.locks.ReentrantLock;
  * - Используется ReentrantLock, который гарантирует, что только ОДИН поток пишет в консоль
  *
  * - Когда пользователь вводит команду, логи не мешают, так как:
- * - inputMode = true - логи накапливаются в буфере
+ * - inputMode = true - логи накапливаются в буфере (не больше LOG_INPUT_BUFFER_CHARS символов,
+ *   лишние строки отбрасываются, их число выводится вместе с буфером)
  * - inputMode = false - логи сразу выводятся в консоль
  * - После ввода все накопленные логи выводятся разом
  *
  * - Логи хорошо читаются, так как в консоли используются ANSI коды для цветов
+ *
+ * - Кроме консоли события получают приёмники (LogSink), подключённые к их уровню:
+ *   например, ELEVATOR и DISPATCH - в отдельные JSON-файлы с метками в наносекундах
+ * - Тихий режим выключает только консоль: без приёмников событие не форматируется вовсе
  */
 public class Logger implements Constants {
 
@@ -20,12 +33,30 @@ public class Logger implements Constants {
     private static final ReentrantLock lock = new ReentrantLock();
     private static final DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern(TIME_FORMAT);
     private static volatile boolean inputMode = false;
+    private static volatile boolean quiet = false;
+    private static volatile SimulationClock clock; // null - метки по системному времени
     private static final StringBuilder buffer = new StringBuilder();
+    private static int droppedLines = 0; // не поместились в буфер режима ввода
+
+    // Приёмники по уровням (копия при каждом изменении, чтение без лока)
+    private static final String[] LEVELS = {INFO, SUCCESS, ERROR, WARN, ELEVATOR, DISPATCHER, SYSTEM, INPUT};
+    private static volatile Map<String, LogSink[]> sinks = new HashMap<>();
+
+    // Метка в наносекундах от эпохи: системное время при старте плюс монотонный счётчик
+    private static final long EPOCH_NANOS = Instant.now().toEpochMilli() * 1_000_000L;
+    private static final long START_NANOS = System.nanoTime();
+
+    // Захват лока с замером ожидания (Profiler, замер LOGGER_LOCK)
+    private static void acquire() {
+        long start = Profiler.start();
+        lock.lock();
+        Profiler.stop(Profiler.Probe.LOGGER_LOCK, start);
+    }
 
     // ФУНКЦИИ ДЛЯ УПРАВЛЕНИЯ РЕЖИМОМ ВВОДА
     // Включить режим ввода (перед вводом команды пользователем)
     public static void startInputMode() {
-        lock.lock();
+        acquire();
         try {
             inputMode = true;
         } finally {
@@ -35,32 +66,129 @@ public class Logger implements Constants {
 
     // Выключить режим ввода (после ввода команды пользователем)
     public static void endInputMode() {
-        lock.lock();
+        acquire();
         try {
             inputMode = false;
             if (buffer.length() > 0) {
                 System.out.print(buffer.toString());
                 buffer.setLength(0);
             }
+            if (droppedLines > 0) {
+                SimulationClock modelClock = clock;
+                String timestamp = (modelClock != null ? modelClock.timeOfDay() : LocalTime.now()).format(timeFormatter);
+                System.out.print(String.format(LOG_FORMAT, GRAY, timestamp, RESET,
+                        YELLOW, WARN, RESET, SYSTEM, droppedLines + " log lines dropped during input"));
+                droppedLines = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Вывод под локом: в режиме ввода - в буфер не больше LOG_INPUT_BUFFER_CHARS символов,
+    // остальное отбрасывается и считается (панель держит режим ввода включённым постоянно)
+    private static void emit(CharSequence text) {
+        if (!inputMode) {
+            System.out.print(text);
+        } else if (buffer.length() + text.length() <= LOG_INPUT_BUFFER_CHARS) {
+            buffer.append(text);
+        } else {
+            droppedLines++;
+        }
+    }
+
+    // Тихий режим (пакетные прогоны): события не выводятся, простой вывод (print) остаётся
+    public static void setQuiet(boolean value) {
+        quiet = value;
+    }
+
+    // Метки времени по часам модели (детерминированный прогон); null - системное время
+    public static void setClock(SimulationClock value) {
+        clock = value;
+    }
+
+    // ПРИЁМНИКИ
+    // Подключение приёмника к уровням (без уровней - ко всем); неизвестный уровень - IllegalArgumentException
+    public static void addSink(LogSink sink, String... levels) {
+        List<String> matched = new ArrayList<>();
+        for (String level : levels.length > 0 ? levels : LEVELS) {
+            String known = null;
+            for (String candidate : LEVELS) {
+                if (candidate.equalsIgnoreCase(level.trim())) {
+                    known = candidate;
+                }
+            }
+            if (known == null) {
+                throw new IllegalArgumentException("Unknown log level: " + level + " " + Arrays.toString(LEVELS));
+            }
+            matched.add(known);
+        }
+
+        acquire();
+        try {
+            Map<String, LogSink[]> updated = new HashMap<>(sinks);
+            for (String level : matched) {
+                LogSink[] current = updated.getOrDefault(level, new LogSink[0]);
+                LogSink[] extended = Arrays.copyOf(current, current.length + 1);
+                extended[current.length] = sink;
+                updated.put(level, extended);
+            }
+            sinks = updated;
         } finally {
             lock.unlock();
         }
     }
 
+    // Закрытие всех приёмников (при завершении программы)
+    public static void closeSinks() {
+        Set<LogSink> all = new LinkedHashSet<>();
+        acquire();
+        try {
+            for (LogSink[] routed : sinks.values()) {
+                all.addAll(Arrays.asList(routed));
+            }
+            sinks = new HashMap<>();
+        } finally {
+            lock.unlock();
+        }
+        for (LogSink sink : all) {
+            sink.close();
+        }
+    }
+
+    private static long timestampNanos() {
+        SimulationClock modelClock = clock;
+        if (modelClock != null) {
+            return modelClock.nowMillis() * 1_000_000L;
+        }
+        return EPOCH_NANOS + (System.nanoTime() - START_NANOS);
+    }
+
     // УНИВЕРСАЛЬНАЯ ФУНКЦИЯ ЛОГИРОВАНИЯ
     private static void log(String level, String source, String message, String color) {
-        lock.lock();
+        LogSink[] routed = sinks.get(level);
+        if (quiet && routed == null) {
+            return;
+        }
+        acquire();
         try {
-            String timestamp = LocalTime.now().format(timeFormatter);
+            if (routed != null) {
+                long nanos = timestampNanos();
+                for (LogSink sink : routed) {
+                    sink.write(nanos, level, source, message);
+                }
+            }
+            if (quiet) {
+                return;
+            }
+
+            SimulationClock modelClock = clock;
+            String timestamp = (modelClock != null ? modelClock.timeOfDay() : LocalTime.now()).format(timeFormatter);
             String logLine = String.format(LOG_FORMAT, GRAY, timestamp, RESET,
                     color, level, RESET, source, message
             );
 
-            if (inputMode) {
-                buffer.append(logLine);
-            } else {
-                System.out.print(logLine);
-            }
+            emit(logLine);
         } finally {
             lock.unlock();
         }
@@ -103,7 +231,7 @@ public class Logger implements Constants {
 
     // Приглашение для ввода (без перевода строки)
     public static void prompt(String message) {
-        lock.lock();
+        acquire();
         try {
             if (!inputMode) {
                 System.out.print(YELLOW + ">> " + RESET + message);
@@ -115,14 +243,10 @@ public class Logger implements Constants {
 
     // Простой вывод строки (без форматирования времени и уровня)
     public static void print(String message) {
-        lock.lock();
+        acquire();
         try {
             String line = "   " + message + System.lineSeparator();
-            if (inputMode) {
-                buffer.append(line);
-            } else {
-                System.out.print(line);
-            }
+            emit(line);
         } finally {
             lock.unlock();
         }
@@ -130,13 +254,9 @@ public class Logger implements Constants {
 
     // Вывод пустой строки
     public static void println() {
-        lock.lock();
+        acquire();
         try {
-            if (inputMode) {
-                buffer.append(System.lineSeparator());
-            } else {
-                System.out.println();
-            }
+            emit(System.lineSeparator());
         } finally {
             lock.unlock();
         }
@@ -144,31 +264,23 @@ public class Logger implements Constants {
 
     // ДЕКОРАТИВНЫЕ ЭЛЕМЕНТЫ (для лучшей читаемости)
     public static void printSeparator() {
-        lock.lock();
+        acquire();
         try {
             String line = GRAY + SEPARATOR.repeat(70) + RESET + System.lineSeparator();
-            if (inputMode) {
-                buffer.append(line);
-            } else {
-                System.out.print(line);
-            }
+            emit(line);
         } finally {
             lock.unlock();
         }
     }
 
     public static void printHeader(String title) {
-        lock.lock();
+        acquire();
         try {
             String line = System.lineSeparator() +
                     CYAN + "═".repeat(70) + RESET + System.lineSeparator() +
                     CYAN + " " + title + RESET + System.lineSeparator() +
                     CYAN + "═".repeat(70) + RESET + System.lineSeparator();
-            if (inputMode) {
-                buffer.append(line);
-            } else {
-                System.out.print(line);
-            }
+            emit(line);
         } finally {
             lock.unlock();
         }
@@ -176,17 +288,13 @@ public class Logger implements Constants {
 
     // Вывод меню
     public static void printMenu(String[] options) {
-        lock.lock();
+        acquire();
         try {
             StringBuilder sb = new StringBuilder();
             for (String option : options) {
                 sb.append("   ").append(WHITE).append(option).append(RESET).append(System.lineSeparator());
             }
-            if (inputMode) {
-                buffer.append(sb);
-            } else {
-                System.out.print(sb);
-            }
+            emit(sb);
         } finally {
             lock.unlock();
         }
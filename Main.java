@@ -1,93 +1,543 @@
-import java.util.Scanner;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 public class Main implements Constants {
 
+    // Скрипт команд, выполняемый после настройки здания (--script)
+    private static Path scriptFile;
+
+    // Выполняемые сейчас скрипты (вложенный вызов): повторный вход в любой из них - цикл
+    private static final Set<Path> activeScripts = new HashSet<>();
+
+    // Порт сетевого входа на localhost (--control-port), 0 - без сервера
+    private static int controlPort;
+
     public static void main(String[] args) {
         Logger.printHeader(GENERAL_HEADER);
         Logger.print("Type 'help' for available commands");
         Logger.printSeparator();
 
-        Scanner scanner = new Scanner(System.in);
+        // Буферизованное чтение: команды можно подавать через pipe тысячами строк
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
         Dispatcher dispatcher = new Dispatcher();
-        UI ui = new UI(scanner, dispatcher);
+        UI ui = new UI(reader, dispatcher);
+
+        // Параметры командной строки
+        parseArguments(args, dispatcher);
+
+        // Сводка профилирования в записи JFR (если запись идёт)
+        HotPathEvent.register();
 
         // Настройка здания
         ui.buildingSetup();
 
-        // Основной цикл обработки команд
-        work(scanner, dispatcher, ui);
+        // Сетевой вход для вызовов
+        ControlServer control = controlPort > 0 ? ControlServer.start(dispatcher, controlPort) : null;
+
+        // Скрипт, затем основной цикл обработки команд (если скрипт не завершил работу)
+        if (scriptFile == null || runScript(scriptFile, dispatcher, ui)) {
+            work(dispatcher, ui);
+        }
 
         // Завершение
-        scanner.close();
+        if (control != null) {
+            control.close();
+        }
         Logger.system("The END of simulation!");
+        Logger.closeSinks();
         System.exit(0);
     }
 
-    // Основной цикл обработки команд
-    private static void work(Scanner scanner, Dispatcher dispatcher, UI ui) {
-        while (true) {
-            Logger.prompt("Enter command: ");
+    // Разбор аргументов: --journal <file>, --checkpoint <file>,
+    // --admission reject|shed|defer, --queue-capacity <n>, --binding early|late,
+    // --dispatch time|energy|off-peak, --weights <file>, --script <file>, --control-port <port>,
+    // --log-json [levels=]<file> (можно несколько раз), --profile
+    private static void parseArguments(String[] args, Dispatcher dispatcher) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case JOURNAL_ARG:
+                    if (i + 1 < args.length) {
+                        dispatcher.setJournalFile(Paths.get(args[++i]));
+                    } else {
+                        Logger.error(MAIN, "Missing file after " + JOURNAL_ARG);
+                    }
+                    break;
 
-            Logger.startInputMode();
-            String input = scanner.nextLine().toLowerCase().trim();
-            Logger.endInputMode();
+                case CHECKPOINT_ARG:
+                    if (i + 1 < args.length) {
+                        dispatcher.setCheckpointFile(Paths.get(args[++i]));
+                    } else {
+                        Logger.error(MAIN, "Missing file after " + CHECKPOINT_ARG);
+                    }
+                    break;
 
-            // Пустой ввод - игнорируем
-            if (input.isEmpty()) {
-                continue;
-            }
+                case ADMISSION_ARG:
+                    if (i + 1 < args.length) {
+                        setAdmissionPolicy(dispatcher, args[++i]);
+                    } else {
+                        Logger.error(MAIN, "Missing policy after " + ADMISSION_ARG);
+                    }
+                    break;
 
-            // Обработка команд
-            switch (input) {
-                case EXIT:
-                    dispatcher.shutdown();
+                case QUEUE_CAPACITY_ARG:
+                    if (i + 1 < args.length) {
+                        setQueueCapacity(dispatcher, args[++i]);
+                    } else {
+                        Logger.error(MAIN, "Missing number after " + QUEUE_CAPACITY_ARG);
+                    }
                     break;
 
-                case LIST:
-                    ui.displayElevators();
+                case BINDING_ARG:
+                    if (i + 1 < args.length) {
+                        setBindingMode(dispatcher, args[++i]);
+                    } else {
+                        Logger.error(MAIN, "Missing mode after " + BINDING_ARG);
+                    }
                     break;
 
-                case INFO:
-                    ui.printBuildingParameters();
+                case DISPATCH_ARG:
+                    if (i + 1 < args.length) {
+                        setDispatchMode(dispatcher, args[++i]);
+                    } else {
+                        Logger.error(MAIN, "Missing mode after " + DISPATCH_ARG);
+                    }
                     break;
 
-                case RUN:
-                    handleRunCommand(dispatcher, ui);
+                case GROUP_ARG:
+                    if (i + 1 < args.length) {
+                        setGroupMode(dispatcher, args[++i]);
+                    } else {
+                        Logger.error(MAIN, "Missing mode after " + GROUP_ARG);
+                    }
                     break;
 
-                case HELP:
-                    ui.printHelp();
+                case SHAFT_ARG:
+                    if (i + 1 < args.length) {
+                        setShaftMode(dispatcher, args[++i]);
+                    } else {
+                        Logger.error(MAIN, "Missing mode after " + SHAFT_ARG);
+                    }
+                    break;
+
+                case WEIGHTS_ARG:
+                    if (i + 1 < args.length) {
+                        dispatcher.setWeightsFile(Paths.get(args[++i]));
+                    } else {
+                        Logger.error(MAIN, "Missing file after " + WEIGHTS_ARG);
+                    }
+                    break;
+
+                case SCRIPT_ARG:
+                    if (i + 1 < args.length) {
+                        scriptFile = Paths.get(args[++i]);
+                    } else {
+                        Logger.error(MAIN, "Missing file after " + SCRIPT_ARG);
+                    }
+                    break;
+
+                case CONTROL_PORT_ARG:
+                    if (i + 1 < args.length) {
+                        setControlPort(args[++i]);
+                    } else {
+                        Logger.error(MAIN, "Missing port after " + CONTROL_PORT_ARG);
+                    }
+                    break;
+
+                case PROFILE_ARG:
+                    Profiler.setEnabled(true);
+                    break;
+
+                case LOG_JSON_ARG:
+                    if (i + 1 < args.length) {
+                        JsonLinesSink.attach(args[++i]);
+                    } else {
+                        Logger.error(MAIN, "Missing file after " + LOG_JSON_ARG);
+                    }
                     break;
 
                 default:
-                    Logger.warning(MAIN, "Unknown command: ");
-                    Logger.print("Type 'help' for available commands");
+                    Logger.warning(MAIN, "Unknown argument: " + args[i]);
                     break;
             }
         }
     }
 
+    private static void setAdmissionPolicy(Dispatcher dispatcher, String value) {
+        switch (value.toLowerCase()) {
+            case "reject":
+                dispatcher.setAdmissionPolicy(Dispatcher.AdmissionPolicy.REJECT);
+                break;
+            case "shed":
+                dispatcher.setAdmissionPolicy(Dispatcher.AdmissionPolicy.SHED_LOWEST);
+                break;
+            case "defer":
+                dispatcher.setAdmissionPolicy(Dispatcher.AdmissionPolicy.DEFER);
+                break;
+            default:
+                Logger.error(MAIN, "Unknown admission policy: " + value + " (reject, shed, defer)");
+                break;
+        }
+    }
+
+    private static void setBindingMode(Dispatcher dispatcher, String value) {
+        switch (value.toLowerCase()) {
+            case "early":
+                dispatcher.setBindingMode(Dispatcher.BindingMode.EARLY);
+                break;
+            case "late":
+                dispatcher.setBindingMode(Dispatcher.BindingMode.LATE);
+                break;
+            default:
+                Logger.error(MAIN, "Unknown binding mode: " + value + " (early, late)");
+                break;
+        }
+    }
+
+    private static void setDispatchMode(Dispatcher dispatcher, String value) {
+        switch (value.toLowerCase()) {
+            case "time":
+                dispatcher.setDispatchMode(Dispatcher.DispatchMode.TIME);
+                break;
+            case "energy":
+                dispatcher.setDispatchMode(Dispatcher.DispatchMode.ENERGY);
+                break;
+            case "off-peak":
+                dispatcher.setDispatchMode(Dispatcher.DispatchMode.OFF_PEAK);
+                break;
+            default:
+                Logger.error(MAIN, "Unknown dispatch mode: " + value + " (time, energy, off-peak)");
+                break;
+        }
+    }
+
+    private static void setGroupMode(Dispatcher dispatcher, String value) {
+        switch (value.toLowerCase()) {
+            case "independent":
+                dispatcher.setGroupMode(Dispatcher.GroupMode.INDEPENDENT);
+                break;
+            case "collective":
+                dispatcher.setGroupMode(Dispatcher.GroupMode.COLLECTIVE);
+                break;
+            default:
+                Logger.error(MAIN, "Unknown group mode: " + value + " (independent, collective)");
+                break;
+        }
+    }
+
+    private static void setShaftMode(Dispatcher dispatcher, String value) {
+        switch (value.toLowerCase()) {
+            case "single":
+                dispatcher.setShaftMode(Dispatcher.ShaftMode.SINGLE);
+                break;
+            case "double-deck":
+                dispatcher.setShaftMode(Dispatcher.ShaftMode.DOUBLE_DECK);
+                break;
+            case "twin":
+                dispatcher.setShaftMode(Dispatcher.ShaftMode.TWIN);
+                break;
+            default:
+                Logger.error(MAIN, "Unknown shaft mode: " + value + " (single, double-deck, twin)");
+                break;
+        }
+    }
+
+    private static void setQueueCapacity(Dispatcher dispatcher, String value) {
+        try {
+            dispatcher.setQueueCapacity(Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            Logger.error(MAIN, "Invalid queue capacity: " + value);
+        }
+    }
+
+    private static void setControlPort(String value) {
+        try {
+            int port = Integer.parseInt(value);
+            if (port < 1 || port > 65535) {
+                Logger.error(MAIN, "Port must be between 1 and 65535: " + value);
+                return;
+            }
+            controlPort = port;
+        } catch (NumberFormatException e) {
+            Logger.error(MAIN, "Invalid port: " + value);
+        }
+    }
+
+    // Основной цикл обработки команд
+    private static void work(Dispatcher dispatcher, UI ui) {
+        while (true) {
+            Logger.prompt("Enter command: ");
+
+            String line = ui.readLine();
+
+            // Конец ввода (pipe закончился, Ctrl+D) - как exit
+            if (line == null) {
+                dispatcher.shutdown();
+                return;
+            }
+
+            if (!executeLine(line, dispatcher, ui)) {
+                return;
+            }
+        }
+    }
+
+    // Строка консоли или скрипта: команды через ';'
+    // false - встретилась команда exit
+    private static boolean executeLine(String line, Dispatcher dispatcher, UI ui) {
+        for (String statement : line.split(STATEMENT_SEPARATOR)) {
+            if (!execute(statement, dispatcher, ui)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Одна команда; false - exit
+    private static boolean execute(String statement, Dispatcher dispatcher, UI ui) {
+        String input = statement.toLowerCase().trim();
+
+        // Пустой ввод и комментарии - игнорируем
+        if (input.isEmpty() || input.startsWith(COMMENT_PREFIX)) {
+            return true;
+        }
+
+        // Команда и её аргументы
+        String[] parts = input.split("\\s+");
+
+        // Обработка команд
+        switch (parts[0]) {
+            case EXIT:
+                dispatcher.shutdown();
+                return false;
+
+            case LIST:
+                ui.displayElevators();
+                break;
+
+            case INFO:
+                ui.printBuildingParameters();
+                break;
+
+            case RUN:
+                handleRunCommand(dispatcher, ui, parts);
+                break;
+
+            case HELP:
+                ui.printHelp();
+                break;
+
+            case REPLAY:
+                handleReplayCommand(dispatcher, parts);
+                break;
+
+            case ENERGY:
+                ui.printEnergyReport();
+                break;
+
+            case WEIGHTS:
+                handleWeightsCommand(dispatcher, ui, parts);
+                break;
+
+            case WATCH:
+                handleWatchCommand(dispatcher, ui, parts);
+                break;
+
+            case STATS:
+                handleStatsCommand(ui, parts);
+                break;
+
+            case SCRIPT:
+                // Путь берётся из исходной строки: регистр в имени файла важен
+                String[] original = statement.trim().split("\\s+");
+                if (parts.length == 2 && original.length == 2) {
+                    return runScript(Paths.get(original[1]), dispatcher, ui);
+                }
+                Logger.error(MAIN, "Usage: " + SCRIPT + " <file>");
+                break;
+
+            default:
+                Logger.warning(MAIN, "Unknown command: " + parts[0]);
+                Logger.print("Type 'help' for available commands");
+                break;
+        }
+        return true;
+    }
+
+    // Выполнение файла команд (буферизованное чтение, строки как в консоли)
+    // false - скрипт выполнил exit
+    private static boolean runScript(Path file, Dispatcher dispatcher, UI ui) {
+        Path key = scriptKey(file);
+        if (!activeScripts.add(key)) {
+            Logger.error(MAIN, "Script " + file + " is already running, recursive call ignored");
+            return true;
+        }
+        try {
+            return runScriptFile(file, dispatcher, ui);
+        } finally {
+            activeScripts.remove(key);
+        }
+    }
+
+    // Один и тот же файл под разными путями (относительный, через ссылку) - один ключ
+    private static Path scriptKey(Path file) {
+        try {
+            return file.toRealPath();
+        } catch (IOException e) {
+            return file.toAbsolutePath().normalize(); // файла нет - ошибка будет при чтении
+        }
+    }
+
+    private static boolean runScriptFile(Path file, Dispatcher dispatcher, UI ui) {
+        long started = System.currentTimeMillis();
+        int lines = 0;
+
+        try (BufferedReader script = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Logger.system("Running script " + file);
+            String line;
+            while ((line = script.readLine()) != null) {
+                lines++;
+                if (!executeLine(line, dispatcher, ui)) {
+                    return false;
+                }
+            }
+        } catch (IOException e) {
+            Logger.error(MAIN, "Cannot read script " + file + ": " + e.getMessage());
+            return true;
+        }
+
+        Logger.system("Script " + file + " done: " + lines + " lines in " +
+                (System.currentTimeMillis() - started) + " ms");
+        return true;
+    }
+
     // Обработка команды вызова лифта
-    private static void handleRunCommand(Dispatcher dispatcher, UI ui) {
+    // run - интерактивный ввод, run <from> <to> | run <from> up|down <to> - одной строкой
+    private static void handleRunCommand(Dispatcher dispatcher, UI ui, String[] parts) {
         if (!dispatcher.isRunning()) {
             Logger.error(MAIN, "System not running. Cannot process requests.");
             return;
         }
 
-        Command command = ui.getCommand();
+        Command command = parts.length == 1 ? ui.getCommand() : ui.parseCommand(parts);
 
+        // null - ошибку ввода уже вывел UI; неверную команду отклонит и учтёт диспетчер
         if (command == null) {
-            Logger.error(MAIN, "Failed to create command");
             return;
         }
 
-        if (!command.isValid()) {
-            Logger.error(MAIN, "Invalid command: " +
-                        (command.getValidationError() != null ?
-                         command.getValidationError() : "unknown error"));
+        dispatcher.dispatch(command);
+    }
+
+    // Живая панель: watch [first car]; возврат к консоли по Enter
+    private static void handleWatchCommand(Dispatcher dispatcher, UI ui, String[] parts) {
+        if (dispatcher.getElevators().isEmpty()) {
+            Logger.warning(MAIN, "No elevators in system");
             return;
         }
 
-        dispatcher.dispatch(command);
+        int first = 1;
+        if (parts.length > 1) {
+            try {
+                first = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException e) {
+                Logger.error(MAIN, "Invalid car number: " + parts[1]);
+                return;
+            }
+        }
+
+        Dashboard dashboard = new Dashboard(dispatcher, System.out, first - 1);
+        Logger.startInputMode();
+        dashboard.start();
+        ui.awaitEnter();
+        dashboard.stop();
+        Logger.endInputMode();
+    }
+
+    // Профилирование: stats [on | off | reset | threads]
+    private static void handleStatsCommand(UI ui, String[] parts) {
+        String action = parts.length > 1 ? parts[1] : "";
+        switch (action) {
+            case "":
+                ui.printStats(false);
+                break;
+            case STATS_THREADS:
+                ui.printStats(true);
+                break;
+            case STATS_ON:
+                Profiler.setEnabled(true);
+                Logger.info(MAIN, "Profiling enabled");
+                break;
+            case STATS_OFF:
+                Profiler.setEnabled(false);
+                Logger.info(MAIN, "Profiling disabled");
+                break;
+            case STATS_RESET:
+                Profiler.reset();
+                Logger.info(MAIN, "Profiling counters reset");
+                break;
+            default:
+                Logger.error(MAIN, "Usage: " + STATS + " [on | off | reset | threads]");
+                break;
+        }
+    }
+
+    // Веса диспетчера: weights | weights reload | weights key=value ...
+    private static void handleWeightsCommand(Dispatcher dispatcher, UI ui, String[] parts) {
+        if (parts.length == 1) {
+            ui.printWeights();
+            return;
+        }
+
+        if (parts.length == 2 && parts[1].equals(RELOAD)) {
+            Path file = dispatcher.getWeightsFile();
+            if (file == null) {
+                Logger.error(MAIN, "No weights file. Start with " + WEIGHTS_ARG + " <file>");
+            } else if (dispatcher.loadWeights(file)) {
+                ui.printWeights();
+            }
+            return;
+        }
+
+        if (dispatcher.updateWeights(Arrays.copyOfRange(parts, 1, parts.length))) {
+            ui.printWeights();
+        }
+    }
+
+    // Восстановление состояния по журналу: replay [seconds]
+    private static void handleReplayCommand(Dispatcher dispatcher, String[] parts) {
+        Path file = dispatcher.getJournalFile();
+        if (file == null) {
+            Logger.error(MAIN, "Journal disabled. Start with " + JOURNAL_ARG + " <file>");
+            return;
+        }
+
+        long atNanos = Long.MAX_VALUE;
+        if (parts.length > 1) {
+            try {
+                atNanos = (long) (Double.parseDouble(parts[1]) * 1e9);
+            } catch (NumberFormatException e) {
+                Logger.error(MAIN, "Invalid time: " + parts[1]);
+                return;
+            }
+        }
+
+        Journal journal = dispatcher.getJournal();
+        if (journal != null) {
+            journal.flush();
+        }
+
+        try {
+            JournalReplayer.replay(file, atNanos).print();
+        } catch (IOException e) {
+            Logger.error(MAIN, "Cannot replay journal: " + e.getMessage());
+        }
     }
 }
@@ -0,0 +1,219 @@
+import java.util.Locale;
+
+/**
+ * Кинематический профиль лифта
+ * Максимальная скорость, ускорение, рывок и тайминги дверей отдельной кабины
+ *
+ * Время в пути считается по трапецеидальному профилю скорости:
+ * - разгон до максимальной скорости, равномерное движение, торможение
+ * - на короткой поездке кабина не успевает разогнаться (треугольный профиль)
+ * - рывок (jerk) сглаживает разгон и торможение и добавляет a/j к времени поездки
+ * - кабина идёт по этажам с шагом по профилю всей поездки (arrivalMillis): медленные шаги
+ *   разгона в начале, торможения - перед остановкой
+ *
+ * Профиль неизменяемый - кабины и диспетчер читают его без синхронизации
+ * Время в пути зависит только от числа этажей, поэтому для здания заранее строится
+ * таблица "расстояние -> мс" (плоский int[]): счёт диспетчера и движение кабины
+ * берут время из таблицы вместо расчёта; таблица пересобирается только при смене высоты здания
+ */
+public final class MotionProfile implements Constants {
+
+    private final String name;
+    private final double maxSpeed;     // м/с
+    private final double acceleration; // м/с², 0 - мгновенный разгон
+    private final double jerk;         // м/с³, 0 - без учёта рывка
+    private final long doorOpenMillis;
+    private final long doorDwellMillis;
+    private final long doorCloseMillis;
+
+    // Время в пути по числу этажей (мс), индекс - расстояние; пустая - таблица не построена
+    private volatile int[] travelTable = new int[0];
+
+    // Штраф за время в пути по расстоянию при последнем весе (пакетный счёт диспетчера)
+    private static final class PenaltyTable {
+        final int secondFine;
+        final int[] penalty;
+
+        PenaltyTable(int secondFine, int[] penalty) {
+            this.secondFine = secondFine;
+            this.penalty = penalty;
+        }
+    }
+
+    private volatile PenaltyTable penaltyTable;
+
+    public MotionProfile(String name, double maxSpeed, double acceleration, double jerk,
+                         long doorOpenMillis, long doorDwellMillis, long doorCloseMillis) {
+        if (maxSpeed <= 0 || acceleration < 0 || jerk < 0 ||
+            doorOpenMillis < 0 || doorDwellMillis < 0 || doorCloseMillis < 0) {
+            throw new IllegalArgumentException("Invalid motion profile: " + name);
+        }
+        this.name = name;
+        this.maxSpeed = maxSpeed;
+        this.acceleration = acceleration;
+        this.jerk = jerk;
+        this.doorOpenMillis = doorOpenMillis;
+        this.doorDwellMillis = doorDwellMillis;
+        this.doorCloseMillis = doorCloseMillis;
+    }
+
+    // ГОТОВЫЕ ПРОФИЛИ
+
+    // Профиль из настроек консоли: секунды на этаж и время открытых дверей, без разгона
+    public static MotionProfile legacy(int secondsPerFloor, int doorsPeriod) {
+        return new MotionProfile(LOCAL_PROFILE, FLOOR_HEIGHT_METERS / secondsPerFloor, 0, 0,
+                0, doorsPeriod * 1000L, 0);
+    }
+
+    // Экспресс-лифт высотного здания
+    public static MotionProfile express() {
+        return new MotionProfile(EXPRESS_PROFILE, 6.0, 1.2, 1.8, 1800, 3000, 2200);
+    }
+
+    // ГЕТТЕРЫ
+    public String getName() {
+        return name;
+    }
+
+    public double getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    public double getAcceleration() {
+        return acceleration;
+    }
+
+    public double getJerk() {
+        return jerk;
+    }
+
+    public long getDoorOpenMillis() {
+        return doorOpenMillis;
+    }
+
+    public long getDoorDwellMillis() {
+        return doorDwellMillis;
+    }
+
+    public long getDoorCloseMillis() {
+        return doorCloseMillis;
+    }
+
+    // Полный цикл дверей: открытие + ожидание + закрытие
+    public long getDoorCycleMillis() {
+        return doorOpenMillis + doorDwellMillis + doorCloseMillis;
+    }
+
+    // ТАБЛИЦА ВРЕМЕНИ В ПУТИ
+    // Построение под здание из maxFloors этажей; та же высота - без работы
+    public void prepareTravelTable(int maxFloors) {
+        if (travelTable.length == maxFloors) {
+            return;
+        }
+        int[] table = new int[maxFloors];
+        for (int floors = 1; floors < maxFloors; floors++) {
+            table[floors] = (int) computeTravelMillis(floors);
+        }
+        travelTable = table;
+    }
+
+    // Штраф за время в пути по расстоянию (индекс) при весе secondFine за секунду пути
+    // Пересчитывается только при смене веса или высоты здания; та же формула, что поэлементно
+    public int[] travelPenaltyTable(int secondFine) {
+        int[] table = travelTable;
+        PenaltyTable cached = penaltyTable;
+        if (cached != null && cached.secondFine == secondFine && cached.penalty.length == table.length) {
+            return cached.penalty;
+        }
+        int[] penalty = new int[table.length];
+        for (int floors = 0; floors < table.length; floors++) {
+            penalty[floors] = (int) ((long) table[floors] * secondFine / 1000);
+        }
+        penaltyTable = new PenaltyTable(secondFine, penalty);
+        return penalty;
+    }
+
+    // Время поездки на заданное число этажей (мс): из таблицы, за её пределами - расчёт
+    public long travelMillis(int floors) {
+        int[] table = travelTable;
+        if (floors >= 0 && floors < table.length) {
+            return table[floors];
+        }
+        return computeTravelMillis(floors);
+    }
+
+    // Момент прохождения этажа passed от начала поездки на floors этажей (мс от старта)
+    // Разность соседних моментов - время шага между этажами: разгон приходится на первые
+    // этажи поездки, торможение - на последние, крейсерские шаги короче
+    public long arrivalMillis(int floors, int passed) {
+        if (passed <= 0 || floors <= 0) {
+            return 0;
+        }
+        if (passed >= floors) {
+            return travelMillis(floors);
+        }
+        return Math.round(arrivalSeconds(floors * FLOOR_HEIGHT_METERS, passed * FLOOR_HEIGHT_METERS) * 1000);
+    }
+
+    // ВЫЧИСЛЕНИЯ
+    // Время поездки по трапецеидальному профилю (мс)
+    private long computeTravelMillis(int floors) {
+        if (floors <= 0) {
+            return 0;
+        }
+        double distance = floors * FLOOR_HEIGHT_METERS;
+        return Math.round(arrivalSeconds(distance, distance) * 1000);
+    }
+
+    // Время от старта до точки position на пути длиной distance (с), фазы считаются по
+    // пройденному от старта пути
+    private double arrivalSeconds(double distance, double position) {
+        if (acceleration <= 0) {
+            return position / maxSpeed;
+        }
+
+        // Путь разгона до maxSpeed (торможение - столько же)
+        double rampDistance = maxSpeed * maxSpeed / (2 * acceleration);
+        double total;
+        double seconds;
+
+        if (distance >= 2 * rampDistance) {
+            // Трапеция: разгон, крейсерский участок, торможение
+            total = distance / maxSpeed + maxSpeed / acceleration;
+            if (position <= rampDistance) {
+                seconds = Math.sqrt(2 * position / acceleration);
+            } else if (position <= distance - rampDistance) {
+                seconds = maxSpeed / acceleration + (position - rampDistance) / maxSpeed;
+            } else {
+                seconds = total - Math.sqrt(2 * (distance - position) / acceleration);
+            }
+        } else {
+            // Треугольник: разгон до середины пути и сразу торможение
+            total = 2 * Math.sqrt(distance / acceleration);
+            if (position <= distance / 2) {
+                seconds = Math.sqrt(2 * position / acceleration);
+            } else {
+                seconds = total - Math.sqrt(2 * (distance - position) / acceleration);
+            }
+        }
+
+        // Ограничение рывка затягивает разгон и торможение (приближённо): по половине a/j
+        // на трогание и на остановку
+        if (jerk > 0) {
+            double phase = acceleration / jerk / 2;
+            if (position > 0) {
+                seconds += phase;
+            }
+            if (position >= distance) {
+                seconds += phase;
+            }
+        }
+        return seconds;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s (%.2f m/s, %.2f m/s², doors %.1fs)",
+                name, maxSpeed, acceleration, getDoorCycleMillis() / 1000.0);
+    }
+}
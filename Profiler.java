@@ -0,0 +1,240 @@
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Профилирование горячих путей: ожидание локов и задержки операций
+ *
+ * - Замеры: ожидание лока Logger, постановка в очередь лифта и ожидание команды в ней,
+ *   полная задержка dispatch() и время выбора лифта (счёт кандидатов) на запрос
+ * - Каждый поток пишет в свой буфер (ThreadLocal): запись - несколько сложений без локов
+ *   и без разделяемых между потоками строк кэша
+ * - Буферы сводятся только по запросу (команда stats, событие JFR): чтение без барьеров,
+ *   снимок приблизительный, но без остановки потоков
+ * - По каждому замеру: число, сумма, максимум и гистограмма по степеням двойки (перцентили)
+ * - Буферы завершившихся потоков (переподключения, временные потоки) сливаются в общий итог
+ *   "завершённые потоки" и убираются из списка: число буферов не растёт со временем
+ * - Выключено - замер стоит одно чтение volatile-флага
+ */
+public final class Profiler implements Constants {
+
+    // Замеры
+    public enum Probe {
+        LOGGER_LOCK("Logger lock wait"),
+        QUEUE_PUT("Queue offer"),
+        QUEUE_TAKE("Queue take wait"),
+        DISPATCH("dispatch()"),
+        SCORING("Scoring per request");
+
+        private final String label;
+
+        Probe(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final Probe[] PROBES = Probe.values();
+
+    // Раскладка буфера потока по замеру: число, сумма (нс), максимум (нс), гистограмма
+    private static final int COUNT = 0;
+    private static final int TOTAL = 1;
+    private static final int MAX = 2;
+    private static final int HISTOGRAM = 3;
+    private static final int STRIDE = HISTOGRAM + PROFILE_BUCKETS;
+
+    // Буфер одного потока
+    static final class Recorder {
+        final String thread;
+        final long[] data = new long[PROBES.length * STRIDE];
+        private final WeakReference<Thread> owner;
+
+        Recorder(Thread thread) {
+            this.thread = thread.getName();
+            this.owner = new WeakReference<>(thread);
+        }
+
+        // Поток завершился: буфер больше не меняется
+        boolean isRetired() {
+            Thread thread = owner.get();
+            return thread == null || !thread.isAlive();
+        }
+    }
+
+    private static volatile boolean enabled;
+    private static final ConcurrentLinkedQueue<Recorder> recorders = new ConcurrentLinkedQueue<>();
+    private static final long[] retired = new long[PROBES.length * STRIDE]; // под локом retired
+    private static final ThreadLocal<Recorder> local = ThreadLocal.withInitial(() -> {
+        prune();
+        Recorder recorder = new Recorder(Thread.currentThread());
+        recorders.add(recorder);
+        return recorder;
+    });
+
+    private Profiler() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    // ЗАМЕР
+    // start() - начало (0 - профилирование выключено), stop() - запись в буфер потока
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public static void stop(Probe probe, long startNanos) {
+        if (startNanos == 0) {
+            return;
+        }
+        long nanos = System.nanoTime() - startNanos;
+        long[] data = local.get().data;
+        int base = probe.ordinal() * STRIDE;
+        data[base + COUNT]++;
+        data[base + TOTAL] += nanos;
+        if (nanos > data[base + MAX]) {
+            data[base + MAX] = nanos;
+        }
+        data[base + HISTOGRAM + bucket(nanos)]++;
+    }
+
+    // Корзина гистограммы: [2^b, 2^(b+1)) нс, последняя - всё, что больше
+    private static int bucket(long nanos) {
+        int b = 63 - Long.numberOfLeadingZeros(Math.max(nanos, 1));
+        return Math.min(b, PROFILE_BUCKETS - 1);
+    }
+
+    // Слияние буферов завершившихся потоков в итог retired; буфер сливает тот, кто его убрал
+    private static void prune() {
+        for (Recorder recorder : recorders) {
+            if (recorder.isRetired() && recorders.remove(recorder)) {
+                synchronized (retired) {
+                    merge(retired, recorder.data);
+                }
+            }
+        }
+    }
+
+    // СВОДКА
+    // Сброс всех буферов (запись идущих в этот момент замеров может частично сохраниться)
+    public static void reset() {
+        prune();
+        for (Recorder recorder : recorders) {
+            Arrays.fill(recorder.data, 0);
+        }
+        synchronized (retired) {
+            Arrays.fill(retired, 0);
+        }
+    }
+
+    // Итог одного замера
+    static final class Summary {
+        final Probe probe;
+        final long count;
+        final long totalNanos;
+        final long maxNanos;
+        final long[] histogram = new long[PROFILE_BUCKETS];
+
+        private Summary(Probe probe, long[] data, int base) {
+            this.probe = probe;
+            this.count = data[base + COUNT];
+            this.totalNanos = data[base + TOTAL];
+            this.maxNanos = data[base + MAX];
+            System.arraycopy(data, base + HISTOGRAM, histogram, 0, PROFILE_BUCKETS);
+        }
+
+        double meanNanos() {
+            return count > 0 ? (double) totalNanos / count : 0;
+        }
+
+        // Верхняя граница корзины, в которую попадает перцентиль
+        long percentileNanos(double percentile) {
+            long rank = (long) Math.ceil(count * percentile);
+            long seen = 0;
+            for (int b = 0; b < PROFILE_BUCKETS; b++) {
+                seen += histogram[b];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(1L << (b + 1), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+    }
+
+    // Сумма по всем потокам, включая завершившиеся
+    public static List<Summary> summarize() {
+        prune();
+        long[] sum = new long[PROBES.length * STRIDE];
+        synchronized (retired) {
+            merge(sum, retired);
+        }
+        for (Recorder recorder : recorders) {
+            merge(sum, recorder.data);
+        }
+        return toSummaries(sum);
+    }
+
+    // По живым потокам: имя потока и его замеры (потоки без замеров пропускаются)
+    public static List<Recorder> threads() {
+        prune();
+        List<Recorder> active = new ArrayList<>();
+        for (Recorder recorder : recorders) {
+            if (hasSamples(recorder.data)) {
+                active.add(recorder);
+            }
+        }
+        return active;
+    }
+
+    // Итог завершившихся потоков; null - замеров не было
+    public static List<Summary> summarizeRetired() {
+        long[] copy;
+        synchronized (retired) {
+            copy = retired.clone();
+        }
+        return hasSamples(copy) ? toSummaries(copy) : null;
+    }
+
+    static List<Summary> summarize(Recorder recorder) {
+        return toSummaries(recorder.data.clone());
+    }
+
+    private static boolean hasSamples(long[] data) {
+        for (Probe probe : PROBES) {
+            if (data[probe.ordinal() * STRIDE + COUNT] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void merge(long[] sum, long[] data) {
+        for (int p = 0; p < PROBES.length; p++) {
+            int base = p * STRIDE;
+            sum[base + COUNT] += data[base + COUNT];
+            sum[base + TOTAL] += data[base + TOTAL];
+            sum[base + MAX] = Math.max(sum[base + MAX], data[base + MAX]);
+            for (int b = 0; b < PROFILE_BUCKETS; b++) {
+                sum[base + HISTOGRAM + b] += data[base + HISTOGRAM + b];
+            }
+        }
+    }
+
+    private static List<Summary> toSummaries(long[] data) {
+        List<Summary> summaries = new ArrayList<>(PROBES.length);
+        for (Probe probe : PROBES) {
+            summaries.add(new Summary(probe, data, probe.ordinal() * STRIDE));
+        }
+        return summaries;
+    }
+}
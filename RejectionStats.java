@@ -0,0 +1,99 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счётчики отклонённых запросов по причинам (CommandError) и сводки в лог
+ *
+ * - Каждый отказ - одно увеличение LongAdder своей причины, без лока и без строк
+ * - В лог попадает первый отказ окна (REJECTION_SUMMARY_MILLIS) целиком, остальные
+ *   только считаются; при следующем отказе после конца окна выводится сводка
+ *   "сколько и по каким причинам" за прошедшее окно
+ * - Поток неверных вызовов (залипшая кнопка, битые данные воспроизведения) даёт
+ *   не больше двух строк лога в секунду
+ * - Окно отсчитывается по часам модели: на виртуальных часах сводки тоже воспроизводимы
+ */
+public final class RejectionStats implements Constants {
+
+    private static final CommandError[] REASONS = CommandError.values();
+
+    private final LongAdder[] total = newCounters();
+    private final LongAdder[] suppressed = newCounters(); // отказы текущего окна, не попавшие в лог
+    private final AtomicLong windowEndMillis = new AtomicLong();
+
+    private static LongAdder[] newCounters() {
+        LongAdder[] counters = new LongAdder[REASONS.length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    // УЧЁТ ОТКАЗА
+    // command = null - причина NULL_COMMAND; nowMillis - время модели
+    public void record(CommandError reason, Command command, long nowMillis) {
+        total[reason.ordinal()].increment();
+
+        long windowEnd = windowEndMillis.get();
+        if (nowMillis - windowEnd < 0 ||
+            !windowEndMillis.compareAndSet(windowEnd, nowMillis + REJECTION_SUMMARY_MILLIS)) {
+            suppressed[reason.ordinal()].increment();
+            return;
+        }
+
+        // Новое окно: сводка за прошлое и этот отказ целиком
+        flush();
+        String text = command != null ? command.getValidationError() : reason.describe(0, 0, UP);
+        Logger.error(DISPATCHER, "Request rejected: " + text);
+    }
+
+    // Сводка по отказам, ещё не попавшим в лог
+    public void flush() {
+        String summary = drain(suppressed);
+        if (summary != null) {
+            Logger.warning(DISPATCHER, "More requests rejected: " + summary);
+        }
+    }
+
+    private static String drain(LongAdder[] counters) {
+        StringBuilder sb = null;
+        long sum = 0;
+        for (int i = 0; i < counters.length; i++) {
+            long count = counters[i].sumThenReset();
+            if (count == 0) {
+                continue;
+            }
+            sb = sb == null ? new StringBuilder() : sb.append(", ");
+            sb.append(REASONS[i]).append('=').append(count);
+            sum += count;
+        }
+        return sb == null ? null : sum + " (" + sb + ")";
+    }
+
+    // СЧЁТЧИКИ
+    public long getCount(CommandError reason) {
+        return total[reason.ordinal()].sum();
+    }
+
+    public long getTotal() {
+        long sum = 0;
+        for (LongAdder counter : total) {
+            sum += counter.sum();
+        }
+        return sum;
+    }
+
+    // "ПРИЧИНА=число, ..." по ненулевым причинам; пустая строка - отказов не было
+    public String describeCounts() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < total.length; i++) {
+            long count = total[i].sum();
+            if (count > 0) {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                sb.append(REASONS[i]).append('=').append(count);
+            }
+        }
+        return sb.toString();
+    }
+}
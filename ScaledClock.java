@@ -0,0 +1,38 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ускоренные часы: время модели идёт в speedup раз быстрее реального
+ * При speedup = 1 - обычное время (отсчёт от System.currentTimeMillis() при создании)
+ */
+public final class ScaledClock implements SimulationClock {
+
+    private final double speedup;
+    private final long originMillis;
+    private final long startNanos;
+
+    public ScaledClock(double speedup) {
+        if (speedup <= 0) {
+            throw new IllegalArgumentException("Invalid clock speedup: " + speedup);
+        }
+        this.speedup = speedup;
+        this.originMillis = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+    }
+
+    public double getSpeedup() {
+        return speedup;
+    }
+
+    @Override
+    public long nowMillis() {
+        return originMillis + (long) ((System.nanoTime() - startNanos) * speedup / 1_000_000);
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        if (millis <= 0) {
+            return;
+        }
+        TimeUnit.NANOSECONDS.sleep((long) (millis * 1_000_000 / speedup));
+    }
+}
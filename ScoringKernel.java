@@ -0,0 +1,74 @@
+/**
+ * Пакетный расчёт счёта лифтов одного банка по массивам FleetState
+ *
+ * Счёт без учёта энергии (очередь, расстояние, время в пути, бонусы свободного лифта,
+ * лифта по пути и лифта на этаже вызова) считается без ветвлений:
+ * сравнения превращаются в 0/1 битовыми операциями, время в пути - чтение из таблицы
+ * штрафов профиля банка, поэтому тело цикла - прямолинейная арифметика над соседними
+ * элементами массивов без вызовов и обращений к объектам лифтов
+ *
+ * Считаются только лифты подходящего банка: диапазон [from, to) в массивах парка
+ * Для небольших парков диспетчер использует обычный поэлементный расчёт
+ */
+public final class ScoringKernel implements Constants {
+
+    private static final int MOVING = Status.MOVING.ordinal();
+    private static final int STOPPED = Status.STOPPED.ordinal();
+
+    private ScoringKernel() {
+    }
+
+    // Счёт лифтов [from, to) в scores[from..to); travelPenalty - штраф за время в пути по расстоянию
+    public static void scoreRange(FleetState state, int from, int to, int requestFloor,
+                                  boolean requestDirection, ScoringWeights weights,
+                                  int[] travelPenalty, int[] scores) {
+        final int[] currentFloor = state.currentFloor;
+        final int[] targetFloor = state.targetFloor;
+        final int[] taskCount = state.taskCount;
+        final byte[] status = state.status;
+        final byte[] direction = state.direction;
+        final byte[] processing = state.processing;
+        final int wantedDirection = requestDirection ? FleetState.TRUE : FleetState.FALSE;
+        final int taskFine = weights.getTaskFine();
+        final int freeBonus = weights.getFreeBonus();
+        final int distanceFine = weights.getDistanceFine();
+        final int onTheWayBonus = weights.getOnTheWayBonus();
+        final int trueFloorBonus = weights.getTrueFloorBonus();
+
+        for (int i = from; i < to; i++) {
+            int floor = currentFloor[i];
+            int target = targetFloor[i];
+            int tasks = taskCount[i];
+            int st = status[i];
+
+            int moving = eq(st, MOVING);
+            int free = eq(st, STOPPED) & eq(tasks, 0) & (processing[i] ^ 1);
+
+            // Запрос на пути: лифт едет в нужную сторону и этаж между текущим и целевым
+            int low = Math.min(floor, target);
+            int high = Math.max(floor, target);
+            int onTheWay = moving & eq(direction[i], wantedDirection)
+                    & ge(requestFloor, low) & ge(high, requestFloor);
+
+            int distance = Math.abs(floor - requestFloor);
+
+            scores[i] = -tasks * taskFine
+                    + free * freeBonus
+                    - distance * distanceFine
+                    - travelPenalty[distance]
+                    + onTheWay * onTheWayBonus
+                    + eq(floor, requestFloor) * trueFloorBonus;
+        }
+    }
+
+    // 1 если a == b, иначе 0
+    private static int eq(int a, int b) {
+        int d = a ^ b;
+        return ((d | -d) >>> 31) ^ 1;
+    }
+
+    // 1 если a >= b, иначе 0 (этажи и счётчики неотрицательные и далеки от переполнения)
+    private static int ge(int a, int b) {
+        return ((a - b) >>> 31) ^ 1;
+    }
+}
@@ -0,0 +1,158 @@
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Веса функции счёта диспетчера
+ * По умолчанию - значения из Constants; подбор весов - SweepRunner
+ *
+ * Набор неизменяемый: диспетчер читает одну ссылку на решение и атомарно подменяет её
+ * при обновлении из консоли или файла; сканирование парка синхронизация не затрагивает
+ *
+ * Текстовая форма - пары ключ=значение (task, distance, free, onTheWay, trueFloor, travel, kilojoule),
+ * та же, что выводит toString() и понимает файл весов
+ */
+public final class ScoringWeights implements Constants {
+
+    private final int taskFine;
+    private final int distanceFine;
+    private final int freeBonus;
+    private final int onTheWayBonus;
+    private final int trueFloorBonus;
+    private final int travelSecondFine;
+    private final int kilojouleFine;
+
+    public ScoringWeights(int taskFine, int distanceFine, int freeBonus, int onTheWayBonus,
+                          int trueFloorBonus, int travelSecondFine, int kilojouleFine) {
+        if (taskFine < 0 || distanceFine < 0 || freeBonus < 0 || onTheWayBonus < 0 ||
+            trueFloorBonus < 0 || travelSecondFine < 0 || kilojouleFine < 0) {
+            throw new IllegalArgumentException("Scoring weights must be non-negative");
+        }
+        this.taskFine = taskFine;
+        this.distanceFine = distanceFine;
+        this.freeBonus = freeBonus;
+        this.onTheWayBonus = onTheWayBonus;
+        this.trueFloorBonus = trueFloorBonus;
+        this.travelSecondFine = travelSecondFine;
+        this.kilojouleFine = kilojouleFine;
+    }
+
+    // Веса, подобранные вручную (Constants)
+    public static ScoringWeights defaults() {
+        return new ScoringWeights(FINE_TASK_COUNT, FINE_FOR_DISTANCE_PER_FLOOR, BONUS_IS_FREE_ELEVATOR,
+                BONUS_IS_ON_THE_WAY, BONUS_IS_TRUE_FLOOR, FINE_FOR_TRAVEL_SECOND, FINE_FOR_KILOJOULE);
+    }
+
+    // Случайный набор: каждый вес от 0 до удвоенного значения по умолчанию
+    public static ScoringWeights random(Random random) {
+        ScoringWeights base = defaults();
+        return new ScoringWeights(
+                random.nextInt(2 * base.taskFine + 1),
+                random.nextInt(2 * base.distanceFine + 1),
+                random.nextInt(2 * base.freeBonus + 1),
+                random.nextInt(2 * base.onTheWayBonus + 1),
+                random.nextInt(2 * base.trueFloorBonus + 1),
+                random.nextInt(2 * base.travelSecondFine + 1),
+                random.nextInt(2 * base.kilojouleFine + 1));
+    }
+
+    // ИЗМЕНЕНИЕ
+    // Копия с одним изменённым весом (IllegalArgumentException - неизвестный ключ или значение < 0)
+    public ScoringWeights with(String key, int value) {
+        int task = taskFine;
+        int distance = distanceFine;
+        int free = freeBonus;
+        int onTheWay = onTheWayBonus;
+        int trueFloor = trueFloorBonus;
+        int travel = travelSecondFine;
+        int kilojoule = kilojouleFine;
+
+        // Регистр ключа не важен: консоль приводит ввод к нижнему регистру
+        if (key.equalsIgnoreCase(WEIGHT_TASK)) {
+            task = value;
+        } else if (key.equalsIgnoreCase(WEIGHT_DISTANCE)) {
+            distance = value;
+        } else if (key.equalsIgnoreCase(WEIGHT_FREE)) {
+            free = value;
+        } else if (key.equalsIgnoreCase(WEIGHT_ON_THE_WAY)) {
+            onTheWay = value;
+        } else if (key.equalsIgnoreCase(WEIGHT_TRUE_FLOOR)) {
+            trueFloor = value;
+        } else if (key.equalsIgnoreCase(WEIGHT_TRAVEL)) {
+            travel = value;
+        } else if (key.equalsIgnoreCase(WEIGHT_KILOJOULE)) {
+            kilojoule = value;
+        } else {
+            throw new IllegalArgumentException("Unknown weight: " + key);
+        }
+        return new ScoringWeights(task, distance, free, onTheWay, trueFloor, travel, kilojoule);
+    }
+
+    // Пары "ключ=значение" поверх базового набора
+    public ScoringWeights with(String[] assignments) {
+        ScoringWeights result = this;
+        for (String assignment : assignments) {
+            int split = assignment.indexOf('=');
+            if (split <= 0) {
+                throw new IllegalArgumentException("Expected key=value: " + assignment);
+            }
+            result = result.with(assignment.substring(0, split).trim(),
+                    parseValue(assignment.substring(split + 1).trim()));
+        }
+        return result;
+    }
+
+    // Файл весов (формат Properties) поверх базового набора: отсутствующие ключи не меняются
+    public ScoringWeights with(Properties properties) {
+        ScoringWeights result = this;
+        for (String key : properties.stringPropertyNames()) {
+            result = result.with(key.trim(), parseValue(properties.getProperty(key).trim()));
+        }
+        return result;
+    }
+
+    private static int parseValue(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid weight value: " + text);
+        }
+    }
+
+    // ГЕТТЕРЫ
+    public int getTaskFine() {
+        return taskFine;
+    }
+
+    public int getDistanceFine() {
+        return distanceFine;
+    }
+
+    public int getFreeBonus() {
+        return freeBonus;
+    }
+
+    public int getOnTheWayBonus() {
+        return onTheWayBonus;
+    }
+
+    public int getTrueFloorBonus() {
+        return trueFloorBonus;
+    }
+
+    public int getTravelSecondFine() {
+        return travelSecondFine;
+    }
+
+    public int getKilojouleFine() {
+        return kilojouleFine;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s=%d %s=%d %s=%d %s=%d %s=%d %s=%d %s=%d",
+                WEIGHT_TASK, taskFine, WEIGHT_DISTANCE, distanceFine, WEIGHT_FREE, freeBonus,
+                WEIGHT_ON_THE_WAY, onTheWayBonus, WEIGHT_TRUE_FLOOR, trueFloorBonus,
+                WEIGHT_TRAVEL, travelSecondFine, WEIGHT_KILOJOULE, kilojouleFine);
+    }
+}
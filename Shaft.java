@@ -0,0 +1,170 @@
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Шахта с двумя кабинами (ShaftMode.TWIN): нижняя и верхняя кабина в одной шахте
+ *
+ * - Кабины не обгоняют друг друга: нижняя всегда ниже верхней минимум на TWIN_SEPARATION_FLOORS
+ * - Блокировка движения: перед шагом на этаж в сторону соседки кабина резервирует этаж
+ *   (tryAdvance), шаг от соседки резерва не требует; занятый этаж - кабина ждёт по часам модели
+ * - Тупик исключается при назначении: каждая кабина держит резерв этажей принятой работы
+ *   (этаж вызова и цели каждой команды до её завершения); новая работа принимается, только если
+ *   диапазоны этажей кабин не пересекаются с учётом зазора
+ * - Свободная кабина уходит в свой конец шахты, поэтому её диапазон - домашний этаж
+ * - Назначение, объединение вызовов и снятие команды идут под локом шахты: две команды
+ *   в одну шахту не пройдут проверку одновременно
+ */
+final class Shaft implements Constants {
+
+    private final Elevator lower;
+    private final Elevator upper;
+    private final int lowerHome;
+    private final int upperHome;
+
+    // Резерв движения: верхняя граница нижней кабины и нижняя граница верхней (под локом)
+    private int lowerReach;
+    private int upperReach;
+
+    // Этажи принятой работы по командам каждой кабины (под локом)
+    private final Map<Command, int[]> lowerWork = new IdentityHashMap<>();
+    private final Map<Command, int[]> upperWork = new IdentityHashMap<>();
+
+    Shaft(Elevator lower, Elevator upper, int lowerHome, int upperHome) {
+        this.lower = lower;
+        this.upper = upper;
+        this.lowerHome = lowerHome;
+        this.upperHome = upperHome;
+        this.lowerReach = lowerHome;
+        this.upperReach = upperHome;
+    }
+
+    Elevator getLower() {
+        return lower;
+    }
+
+    Elevator getUpper() {
+        return upper;
+    }
+
+    int homeOf(Elevator car) {
+        return car == lower ? lowerHome : upperHome;
+    }
+
+    // Исходные позиции кабин (до запуска потоков, после восстановления контрольной точки)
+    synchronized void place(int lowerFloor, int upperFloor) {
+        lowerReach = lowerFloor;
+        upperReach = upperFloor;
+    }
+
+    // ДВИЖЕНИЕ
+    // Шаг кабины с этажа from на этаж to; false - этаж слишком близко к соседке, ждать
+    synchronized boolean tryAdvance(Elevator car, int from, int to) {
+        if (car == lower) {
+            if (to > from) {
+                if (to > upperReach - TWIN_SEPARATION_FLOORS) {
+                    return false;
+                }
+                lowerReach = to;
+            }
+        } else if (to < from) {
+            if (to < lowerReach + TWIN_SEPARATION_FLOORS) {
+                return false;
+            }
+            upperReach = to;
+        }
+        return true;
+    }
+
+    // Кабина прибыла на этаж: шаг от соседки освобождает этаж позади
+    synchronized void arrived(Elevator car, int floor) {
+        if (car == lower) {
+            lowerReach = floor;
+        } else {
+            upperReach = floor;
+        }
+    }
+
+    // НАЗНАЧЕНИЕ
+    // Может ли кабина принять команду, не пересекаясь с работой соседки
+    synchronized boolean canAccept(Elevator car, Command command) {
+        return car.servesLeg(command) && fits(car, floorsOf(command));
+    }
+
+    // Постановка в очередь с проверкой и резервом этажей
+    synchronized boolean offer(Elevator car, Command command) {
+        int[] floors = floorsOf(command);
+        if (!car.servesLeg(command) || !fits(car, floors) || !car.offerCommand(command)) {
+            return false;
+        }
+        workOf(car).put(command, floors);
+        return true;
+    }
+
+    // Присоединение пассажиров к ожидающей команде кабины (объединение вызовов)
+    synchronized boolean merge(Elevator car, Command open, Command joining) {
+        int[] extra = joining.getDestinations();
+        for (int floor : extra) {
+            if (!car.serves(floor)) {
+                return false;
+            }
+        }
+        if (!fits(car, extra) || !open.tryMerge(joining)) {
+            return false;
+        }
+        workOf(car).put(open, floorsOf(open));
+        return true;
+    }
+
+    // Команда выполнена или снята - её этажи больше не держат шахту
+    synchronized void release(Elevator car, Command command) {
+        workOf(car).remove(command);
+    }
+
+    private Map<Command, int[]> workOf(Elevator car) {
+        return car == lower ? lowerWork : upperWork;
+    }
+
+    private static int[] floorsOf(Command command) {
+        int[] destinations = command.getDestinations();
+        int[] floors = new int[destinations.length + 1];
+        floors[0] = command.getCallFloor();
+        System.arraycopy(destinations, 0, floors, 1, destinations.length);
+        return floors;
+    }
+
+    // Диапазоны кабин с учётом новых этажей extra не пересекаются (с зазором)
+    private boolean fits(Elevator car, int[] extra) {
+        Elevator partner = car == lower ? upper : lower;
+        int[] own = span(car, extra);
+        int[] other = span(partner, null);
+        return car == lower
+                ? own[1] + TWIN_SEPARATION_FLOORS <= other[0]
+                : other[1] + TWIN_SEPARATION_FLOORS <= own[0];
+    }
+
+    // Диапазон [min, max]: текущий этаж и этажи принятой работы; без работы - домашний этаж
+    private int[] span(Elevator car, int[] extra) {
+        Map<Command, int[]> work = workOf(car);
+        if (work.isEmpty() && extra == null) {
+            int home = homeOf(car);
+            return new int[] {home, home};
+        }
+
+        int floor = car.getCurrentFloor();
+        int[] range = {floor, floor};
+        for (int[] floors : work.values()) {
+            extend(range, floors);
+        }
+        if (extra != null) {
+            extend(range, extra);
+        }
+        return range;
+    }
+
+    private static void extend(int[] range, int[] floors) {
+        for (int floor : floors) {
+            range[0] = Math.min(range[0], floor);
+            range[1] = Math.max(range[1], floor);
+        }
+    }
+}
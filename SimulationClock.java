@@ -0,0 +1,52 @@
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+/**
+ * Часы симуляции
+ * Всё время модели (поездки, двери, простой, ожидание пассажиров) идёт через эти часы,
+ * поэтому одна и та же модель работает и в реальном времени, и ускоренно
+ * Потоки модели создаются и ожидают друг друга тоже через часы: виртуальные часы
+ * (VirtualClock) сами решают, какой из них выполняется, и прогон становится детерминированным
+ */
+public interface SimulationClock {
+
+    // Текущее время модели (мс)
+    long nowMillis();
+
+    // Сон на заданное время модели (мс)
+    void sleep(long millis) throws InterruptedException;
+
+    // Время суток модели (окно низкой нагрузки, метки лога)
+    default LocalTime timeOfDay() {
+        return LocalTime.ofInstant(Instant.ofEpochMilli(nowMillis()), ZoneId.systemDefault());
+    }
+
+    // ПОТОКИ МОДЕЛИ
+    // true - потоки модели выполняются по очереди событий часов, а не планировщиком ОС
+    default boolean isVirtual() {
+        return false;
+    }
+
+    default Thread newThread(Runnable task, String name, long stackSize) {
+        return new Thread(null, task, name, stackSize);
+    }
+
+    // Ожидание работы до unpark(key), но не дольше millis времени модели
+    // Реальным часам не нужно: у них блокирующие очереди и условия
+    default void park(Object key, long millis) throws InterruptedException {
+        sleep(millis);
+    }
+
+    default void unpark(Object key) {
+    }
+
+    default void join(Thread thread, long millis) throws InterruptedException {
+        thread.join(millis);
+    }
+
+    // Реальное время
+    static SimulationClock system() {
+        return new ScaledClock(1.0);
+    }
+}
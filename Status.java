@@ -0,0 +1,11 @@
+/**
+ * Состояние кабины лифта
+ *
+ * - Хранится в FleetState как ordinal() в массиве байт, порядок значений менять нельзя:
+ *   его читают панель, сетевой сервер, журнал и контрольные точки
+ */
+enum Status {
+    MOVING,
+    STOPPED,
+    DOOR_OPEN
+}
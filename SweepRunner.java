@@ -0,0 +1,323 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Подбор весов диспетчера пакетными прогонами
+ *
+ * - Каждый прогон - отдельный Dispatcher с собственным парком и ускоренными часами (ScaledClock),
+ *   своим набором весов ScoringWeights и профилем пассажиропотока TrafficProfile
+ * - Прогоны раздаются задачам fork-join пула (рекурсивное деление диапазона номеров);
+ *   одновременно идут не больше --parallelism прогонов (по умолчанию - число процессоров)
+ * - Прогон 0 - веса по умолчанию, остальные - случайные; всё воспроизводимо по --seed
+ * - Итог - Парето-фронты по среднему ожиданию, энергии и числу поездок (все три минимизируются),
+ *   отдельно для каждого профиля пассажиропотока
+ *
+ * Запуск: java SweepRunner [--runs N] [--floors N] [--elevators N] [--requests N]
+ *                          [--interval seconds] [--speedup X] [--seed N] [--parallelism N] [--csv file]
+ */
+public final class SweepRunner implements Constants {
+
+    // Итог одного прогона
+    static final class Result {
+        final int run;
+        final ScoringWeights weights;
+        final TrafficProfile traffic;
+        final double averageWaitSeconds;
+        final double netKwh;
+        final int trips;
+        final long rejected;
+        final boolean completed;
+
+        Result(int run, ScoringWeights weights, TrafficProfile traffic, double averageWaitSeconds,
+               double netKwh, int trips, long rejected, boolean completed) {
+            this.run = run;
+            this.weights = weights;
+            this.traffic = traffic;
+            this.averageWaitSeconds = averageWaitSeconds;
+            this.netKwh = netKwh;
+            this.trips = trips;
+            this.rejected = rejected;
+            this.completed = completed;
+        }
+
+        // Не хуже по всем критериям и лучше хотя бы по одному
+        boolean dominates(Result other) {
+            boolean notWorse = averageWaitSeconds <= other.averageWaitSeconds &&
+                    netKwh <= other.netKwh && trips <= other.trips;
+            boolean better = averageWaitSeconds < other.averageWaitSeconds ||
+                    netKwh < other.netKwh || trips < other.trips;
+            return notWorse && better;
+        }
+    }
+
+    // Параметры прогонов
+    private int runs = SWEEP_DEFAULT_RUNS;
+    private int floors = SWEEP_DEFAULT_FLOORS;
+    private int elevators = SWEEP_DEFAULT_ELEVATORS;
+    private int requests = SWEEP_DEFAULT_REQUESTS;
+    private long intervalMillis = SWEEP_DEFAULT_INTERVAL_MILLIS;
+    private double speedup = SWEEP_DEFAULT_SPEEDUP;
+    private long seed = 1;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private String csvFile;
+
+    // Разрешения на одновременные прогоны: у каждого свои потоки лифтов на часах реального
+    // времени, и при нехватке процессоров ускоренные часы дают шум вместо результата
+    private Semaphore slots;
+
+    // Рекурсивное деление диапазона прогонов [from, to)
+    private final class SweepTask extends RecursiveTask<List<Result>> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        SweepTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Result> compute() {
+            if (to - from == 1) {
+                List<Result> single = new ArrayList<>(1);
+                try {
+                    single.add(simulateSlot(from));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return single;
+            }
+
+            int middle = (from + to) >>> 1;
+            SweepTask left = new SweepTask(from, middle);
+            left.fork();
+            List<Result> results = new SweepTask(middle, to).compute();
+            results.addAll(left.join());
+            return results;
+        }
+    }
+
+    // Прогон под разрешением slots: пул может добавить компенсирующие потоки при join,
+    // но одновременно идут не больше parallelism прогонов
+    private Result simulateSlot(int run) throws InterruptedException {
+        slots.acquire();
+        try {
+            return simulate(run);
+        } finally {
+            slots.release();
+        }
+    }
+
+    // ОДИН ПРОГОН
+    private Result simulate(int run) {
+        Random random = new Random(seed * 1_000_003L + run);
+        ScoringWeights weights = run == 0 ? ScoringWeights.defaults() : ScoringWeights.random(random);
+        TrafficProfile[] profiles = TrafficProfile.values();
+        TrafficProfile traffic = profiles[run % profiles.length];
+        // Один и тот же поток вызовов для всех прогонов профиля: различаются только веса
+        long[] calls = traffic.generate(new Random(seed * 31 + traffic.ordinal()),
+                floors, requests, intervalMillis);
+
+        SimulationClock clock = new ScaledClock(speedup);
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxFloors(floors);
+        dispatcher.setElevatorCount(elevators);
+        dispatcher.setElevatorsSpeed(SWEEP_ELEVATOR_SPEED);
+        dispatcher.setDoorsSpeed(SWEEP_DOOR_SPEED);
+        dispatcher.setWeights(weights);
+        dispatcher.setClock(clock);
+        dispatcher.initializeElevators();
+
+        boolean completed = false;
+        try {
+            long start = clock.nowMillis();
+            for (long call : calls) {
+                clock.sleep(start + CommandCode.atMillis(call) - clock.nowMillis());
+                dispatcher.dispatch(Command.fromCode(call));
+            }
+
+            // Ожидание, пока лифты развезут всех принятых пассажиров
+            long deadline = clock.nowMillis() + SWEEP_DRAIN_LIMIT_MILLIS;
+            while (clock.nowMillis() < deadline) {
+                long settled = dispatcher.getServedPassengers() + dispatcher.getRejectedCount();
+                if (settled >= calls.length) {
+                    completed = true;
+                    break;
+                }
+                clock.sleep(SWEEP_POLL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Result result = new Result(run, weights, traffic,
+                dispatcher.getAverageWaitMillis() / 1000.0,
+                (dispatcher.getConsumedJoules() - dispatcher.getRegeneratedJoules()) / JOULES_PER_KWH,
+                dispatcher.getTripCount(), dispatcher.getRejectedCount(), completed);
+        dispatcher.shutdown();
+        return result;
+    }
+
+    // ПАРЕТО-ФРОНТ
+    // Прогоны профиля, которые не доминирует ни один другой (только завершённые и без отказов)
+    // Фронт строится отдельно для каждого профиля: разные потоки пассажиров несравнимы
+    static List<Result> paretoFront(List<Result> results, TrafficProfile traffic) {
+        List<Result> valid = new ArrayList<>();
+        for (Result result : results) {
+            if (result.traffic == traffic && result.completed && result.rejected == 0) {
+                valid.add(result);
+            }
+        }
+
+        List<Result> front = new ArrayList<>();
+        for (Result candidate : valid) {
+            boolean dominated = false;
+            for (Result other : valid) {
+                if (other.dominates(candidate)) {
+                    dominated = true;
+                    break;
+                }
+            }
+            if (!dominated) {
+                front.add(candidate);
+            }
+        }
+        front.sort(Comparator.comparingDouble(r -> r.averageWaitSeconds));
+        return front;
+    }
+
+    // ЗАПУСК
+    public List<Result> run() {
+        slots = new Semaphore(parallelism);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.invoke(new SweepTask(0, runs));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void printFront(List<Result> results, List<Result> front, long elapsedMillis) {
+        Logger.printHeader(SWEEP_HEADER);
+        Logger.print(String.format(Locale.ROOT, "%d runs, parallelism %d, %.1fs, %d on the fronts",
+                results.size(), parallelism, elapsedMillis / 1000.0, front.size()));
+
+        for (TrafficProfile traffic : TrafficProfile.values()) {
+            Logger.printSeparator();
+            Logger.print(traffic.toString());
+            for (Result result : front) {
+                if (result.traffic == traffic) {
+                    Logger.print(String.format(Locale.ROOT, "#%-5d wait %6.1fs | %7.3f kWh | %5d trips | %s",
+                            result.run, result.averageWaitSeconds, result.netKwh, result.trips, result.weights));
+                }
+            }
+        }
+        Logger.printSeparator();
+    }
+
+    private void writeCsv(List<Result> results, List<Result> front) {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(csvFile), StandardCharsets.UTF_8))) {
+            out.println("run,traffic,wait_s,net_kwh,trips,rejected,completed,pareto," +
+                    "task,distance,free,on_the_way,true_floor,travel,kilojoule");
+            for (Result r : results) {
+                ScoringWeights w = r.weights;
+                out.println(String.format(Locale.ROOT, "%d,%s,%.3f,%.5f,%d,%d,%b,%b,%d,%d,%d,%d,%d,%d,%d",
+                        r.run, r.traffic, r.averageWaitSeconds, r.netKwh, r.trips, r.rejected,
+                        r.completed, front.contains(r), w.getTaskFine(), w.getDistanceFine(),
+                        w.getFreeBonus(), w.getOnTheWayBonus(), w.getTrueFloorBonus(),
+                        w.getTravelSecondFine(), w.getKilojouleFine()));
+            }
+            Logger.print("Results written to " + csvFile);
+        } catch (IOException e) {
+            Logger.print("Cannot write " + csvFile + ": " + e.getMessage());
+        }
+    }
+
+    // Разбор аргументов; false - ошибка
+    private boolean parseArguments(String[] args) {
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String value = i + 1 < args.length ? args[i + 1] : null;
+                if (value == null) {
+                    Logger.print("Missing value after " + args[i]);
+                    return false;
+                }
+                switch (args[i++]) {
+                    case "--runs":
+                        runs = Integer.parseInt(value);
+                        break;
+                    case "--floors":
+                        floors = Integer.parseInt(value);
+                        break;
+                    case "--elevators":
+                        elevators = Integer.parseInt(value);
+                        break;
+                    case "--requests":
+                        requests = Integer.parseInt(value);
+                        break;
+                    case "--interval":
+                        intervalMillis = (long) (Double.parseDouble(value) * 1000);
+                        break;
+                    case "--speedup":
+                        speedup = Double.parseDouble(value);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(value);
+                        break;
+                    case "--parallelism":
+                        parallelism = Integer.parseInt(value);
+                        break;
+                    case "--csv":
+                        csvFile = value;
+                        break;
+                    default:
+                        Logger.print("Unknown argument: " + args[i - 1]);
+                        return false;
+                }
+            }
+        } catch (NumberFormatException e) {
+            Logger.print("Invalid number: " + e.getMessage());
+            return false;
+        }
+
+        if (runs < 1 || floors < MIN_FLOORS + 1 || floors > MAX_FLOORS || elevators < MIN_ELEVATORS ||
+            elevators > MAX_ELEVATORS || requests < 1 || intervalMillis < 0 || speedup <= 0 || parallelism < 1) {
+            Logger.print("Invalid sweep parameters");
+            return false;
+        }
+        return true;
+    }
+
+    public static void main(String[] args) {
+        SweepRunner sweep = new SweepRunner();
+        if (!sweep.parseArguments(args)) {
+            return;
+        }
+
+        Logger.setQuiet(true);
+        long started = System.currentTimeMillis();
+        List<Result> results = sweep.run();
+        List<Result> front = new ArrayList<>();
+        for (TrafficProfile traffic : TrafficProfile.values()) {
+            front.addAll(paretoFront(results, traffic));
+        }
+
+        sweep.printFront(results, front, System.currentTimeMillis() - started);
+        if (sweep.csvFile != null) {
+            sweep.writeCsv(results, front);
+        }
+        System.exit(0);
+    }
+}
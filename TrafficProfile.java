@@ -0,0 +1,47 @@
+import java.util.Random;
+
+/**
+ * Профиль пассажиропотока для пакетных прогонов
+ * Вызовы приходят пуассоновским потоком со средним интервалом meanIntervalMillis
+ */
+public enum TrafficProfile implements Constants {
+    UP_PEAK,    // утро: почти все едут с первого этажа вверх
+    DOWN_PEAK,  // вечер: почти все едут на первый этаж
+    INTERFLOOR, // день: между случайными этажами
+    MIXED;      // смесь трёх потоков поровну
+
+    // Доля поездок основного направления в пиковых профилях
+    private static final double PEAK_SHARE = 0.85;
+
+    // Последовательность вызовов по возрастанию времени, упакованных в long (CommandCode)
+    public long[] generate(Random random, int floors, int count, long meanIntervalMillis) {
+        long[] calls = new long[count];
+        long time = 0;
+
+        for (int i = 0; i < count; i++) {
+            time += (long) (-Math.log(1 - random.nextDouble()) * meanIntervalMillis);
+
+            TrafficProfile kind = this == MIXED ? values()[random.nextInt(3)] : this;
+            int from;
+            int to;
+            if (kind == UP_PEAK && random.nextDouble() < PEAK_SHARE) {
+                from = MIN_FLOORS;
+                to = randomFloor(random, floors, from);
+            } else if (kind == DOWN_PEAK && random.nextDouble() < PEAK_SHARE) {
+                to = MIN_FLOORS;
+                from = randomFloor(random, floors, to);
+            } else {
+                from = MIN_FLOORS + random.nextInt(floors);
+                to = randomFloor(random, floors, from);
+            }
+            calls[i] = CommandCode.internal(from, to, time);
+        }
+        return calls;
+    }
+
+    // Случайный этаж, отличный от заданного
+    private static int randomFloor(Random random, int floors, int except) {
+        int floor = MIN_FLOORS + random.nextInt(floors - 1);
+        return floor >= except ? floor + 1 : floor;
+    }
+}
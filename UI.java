@@ -1,13 +1,17 @@
-import java.util.Scanner;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 
 // Пользовательский интерфейс
 public class UI implements Constants {
 
     private final Dispatcher dispatcher;
-    private final Scanner scanner;
+    private final BufferedReader reader;
 
-    public UI(Scanner scanner, Dispatcher dispatcher) {
-        this.scanner = scanner;
+    public UI(BufferedReader reader, Dispatcher dispatcher) {
+        this.reader = reader;
         this.dispatcher = dispatcher;
     }
 
@@ -27,6 +31,24 @@ public class UI implements Constants {
         Logger.printSeparator();
         Logger.print("Total tasks in queues: " + dispatcher.getTotalTaskCount());
         Logger.print("Idle elevators: " + dispatcher.getIdleElevatorCount());
+        Logger.print("Pending pool: " + dispatcher.getPendingCount() +
+                " | Deferred: " + dispatcher.getDeferredCount() +
+                " | Reassigned: " + dispatcher.getReassignedCount() +
+                " | Shed: " + dispatcher.getShedCount() +
+                " | Rejected: " + dispatcher.getRejectedCount() +
+                " | Coalesced: " + dispatcher.getCoalescedCount());
+        String invalid = dispatcher.getRejections().describeCounts();
+        if (!invalid.isEmpty()) {
+            Logger.print("Invalid requests: " + invalid);
+        }
+        if (dispatcher.isLateBinding()) {
+            Logger.print("Hall calls waiting: " + dispatcher.getHallCallCount() +
+                    " | Claimed: " + dispatcher.getClaimedCount() +
+                    " | Picked up on the way: " + dispatcher.getPassingPickupCount());
+        }
+        if (dispatcher.isCollective()) {
+            Logger.print("Boarded at planned stops: " + dispatcher.getJointBoardingCount());
+        }
         Logger.printSeparator();
     }
 
@@ -34,13 +56,190 @@ public class UI implements Constants {
         Logger.printHeader(BUILDING_PARAMETERS_HEADER);
         Logger.print("Floors:         " + dispatcher.getMaxFloors());
         Logger.print("Elevators:      " + dispatcher.getElevators().size());
-        Logger.print("Elevator speed: " + Elevator.getSpeed() + " s/floor");
-        Logger.print("Door time:      " + Elevator.getOpenedDoorsPeriod() + " s");
+        Logger.print("Elevator speed: " + dispatcher.getElevatorsSpeed() + " s/floor");
+        Logger.print("Door time:      " + dispatcher.getDoorsSpeed() + " s");
+        Logger.print("Express cars:   " + dispatcher.getExpressCount());
+        Logger.print("Zones:          " + dispatcher.getZoneCount());
+        Logger.print("Queue capacity: " + dispatcher.getQueueCapacity());
+        Logger.print("Admission:      " + dispatcher.getAdmissionPolicy());
+        Logger.print("Binding:        " + dispatcher.getBindingMode());
+        Logger.print("Group control:  " + dispatcher.getGroupMode());
+        Logger.print("Shafts:         " + dispatcher.getShaftMode() +
+                (dispatcher.isRunning() ? " (" + dispatcher.getShaftCount() + " shafts)" : ""));
+        Logger.print("Dispatch mode:  " + dispatcher.getDispatchMode() +
+                (dispatcher.isEnergyWeighted() ? " (energy-weighted now)" : ""));
         Logger.print("Command mode:   " + dispatcher.getCommandMode());
         Logger.print("System status:  " + (dispatcher.isRunning() ? "RUNNING" : "STOPPED"));
         Logger.printSeparator();
     }
 
+    // Действующие веса функции счёта
+    public void printWeights() {
+        ScoringWeights weights = dispatcher.getWeights();
+        Logger.printHeader(WEIGHTS_HEADER);
+        printWeight(WEIGHT_TASK, "queue task fine", weights.getTaskFine());
+        printWeight(WEIGHT_DISTANCE, "per floor fine", weights.getDistanceFine());
+        printWeight(WEIGHT_FREE, "idle car bonus", weights.getFreeBonus());
+        printWeight(WEIGHT_ON_THE_WAY, "on the way bonus", weights.getOnTheWayBonus());
+        printWeight(WEIGHT_TRUE_FLOOR, "same floor bonus", weights.getTrueFloorBonus());
+        printWeight(WEIGHT_TRAVEL, "per travel second", weights.getTravelSecondFine());
+        printWeight(WEIGHT_KILOJOULE, "per kJ, energy mode", weights.getKilojouleFine());
+        if (dispatcher.getWeightsFile() != null) {
+            Logger.print("File: " + dispatcher.getWeightsFile() + " (watched)");
+        }
+        Logger.printSeparator();
+    }
+
+    private void printWeight(String key, String meaning, int value) {
+        Logger.print(String.format(Locale.ROOT, "%-10s %-20s %d", key, "(" + meaning + ")", value));
+    }
+
+    // Энергия по лифтам: потребление, рекуперация, кВт·ч на перевезённого пассажира
+    public void printEnergyReport() {
+        if (dispatcher.getElevators().isEmpty()) {
+            Logger.warning(UI, "No elevators in system");
+            return;
+        }
+
+        Logger.printHeader(ENERGY_HEADER);
+
+        for (Elevator elevator : dispatcher.getElevators()) {
+            Logger.print(formatEnergy("Elevator №" + elevator.getID() + " [" +
+                            elevator.getEnergyModel().getName() + "]",
+                    elevator.getConsumedJoules(), elevator.getRegeneratedJoules(),
+                    elevator.getServedPassengers()));
+        }
+
+        Logger.printSeparator();
+        Logger.print(formatEnergy("Total", dispatcher.getConsumedJoules(),
+                dispatcher.getRegeneratedJoules(), dispatcher.getServedPassengers()));
+        Logger.printSeparator();
+    }
+
+    // Сводка профилирования: по всем потокам или по каждому потоку отдельно
+    public void printStats(boolean perThread) {
+        Logger.printHeader(STATS_HEADER);
+        if (!Profiler.isEnabled()) {
+            Logger.print("Profiling is off (" + STATS + " " + STATS_ON + " or " + PROFILE_ARG + ")");
+        }
+
+        if (perThread) {
+            for (Profiler.Recorder recorder : Profiler.threads()) {
+                Logger.print(recorder.thread);
+                printProbes(Profiler.summarize(recorder));
+            }
+            List<Profiler.Summary> finished = Profiler.summarizeRetired();
+            if (finished != null) {
+                Logger.print("Finished threads");
+                printProbes(finished);
+            }
+        } else {
+            printProbes(Profiler.summarize());
+        }
+        Logger.printSeparator();
+    }
+
+    private void printProbes(List<Profiler.Summary> summaries) {
+        Logger.print(String.format(Locale.ROOT, "  %-20s %10s %10s %10s %10s %10s %10s",
+                "Probe", "Count", "Mean µs", "p50 µs", "p99 µs", "Max µs", "Total ms"));
+        for (Profiler.Summary summary : summaries) {
+            if (summary.count == 0) {
+                continue;
+            }
+            Logger.print(String.format(Locale.ROOT, "  %-20s %10d %10.2f %10.2f %10.2f %10.2f %10.1f",
+                    summary.probe.getLabel(), summary.count, summary.meanNanos() / 1000.0,
+                    summary.percentileNanos(0.5) / 1000.0, summary.percentileNanos(0.99) / 1000.0,
+                    summary.maxNanos / 1000.0, summary.totalNanos / 1_000_000.0));
+        }
+    }
+
+    private String formatEnergy(String title, double consumedJoules, double regeneratedJoules,
+                                int passengers) {
+        double netKwh = (consumedJoules - regeneratedJoules) / JOULES_PER_KWH;
+        String perPassenger = passengers > 0
+                ? String.format(Locale.ROOT, "%.4f kWh", netKwh / passengers)
+                : "-";
+        return String.format(Locale.ROOT, "%-24s | Used: %.3f kWh | Regen: %.3f kWh | Passengers: %d | Per passenger: %s",
+                title, consumedJoules / JOULES_PER_KWH, regeneratedJoules / JOULES_PER_KWH,
+                passengers, perPassenger);
+    }
+
+    // ВВОД
+    // Строка ввода (консоль, pipe); null - конец ввода
+    // Пока пользователь печатает, логи копятся в буфере Logger
+    public String readLine() {
+        Logger.startInputMode();
+        try {
+            return reader.readLine();
+        } catch (IOException e) {
+            Logger.error(INPUT, "Cannot read input: " + e.getMessage());
+            return null;
+        } finally {
+            Logger.endInputMode();
+        }
+    }
+
+    // Ожидание Enter; режимом Logger управляет вызывающий (живая панель)
+    public void awaitEnter() {
+        try {
+            reader.readLine();
+        } catch (IOException e) {
+            Logger.error(INPUT, "Cannot read input: " + e.getMessage());
+        }
+    }
+
+    private static String trimmed(String line) {
+        return line == null ? "" : line.trim();
+    }
+
+    // Вызов одной строкой: run <from> <to> | run <from> up|down <to>, последним словом - low|high
+    // Проверку этажей выполняют Command и Dispatcher, как и для интерактивного ввода
+    public Command parseCommand(String[] parts) {
+        int priority = PRIORITY_NORMAL;
+        if (parts.length > 3 && Command.isPriority(parts[parts.length - 1])) {
+            priority = Command.parsePriority(parts[parts.length - 1]);
+            parts = Arrays.copyOf(parts, parts.length - 1);
+        }
+
+        Command command = parseCall(parts);
+        if (command != null) {
+            command.setPriority(priority);
+        }
+        return command;
+    }
+
+    private Command parseCall(String[] parts) {
+        try {
+            if (parts.length == 3) {
+                return new Command(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+            }
+
+            if (parts.length == 4) {
+                boolean direction;
+                if (parts[2].equalsIgnoreCase(UP_STR)) {
+                    direction = UP;
+                } else if (parts[2].equalsIgnoreCase(DOWN_STR)) {
+                    direction = DOWN;
+                } else {
+                    Logger.error(INPUT, "Invalid direction: " + parts[2] + ". Use 'up' or 'down'");
+                    return null;
+                }
+
+                Command command = new Command(Integer.parseInt(parts[1]), direction);
+                if (command.isValid()) {
+                    command.setTargetFloor(Integer.parseInt(parts[3]));
+                }
+                return command;
+            }
+        } catch (NumberFormatException e) {
+            Logger.error(INPUT, "Invalid floor number: " + e.getMessage());
+            return null;
+        }
+
+        Logger.error(INPUT, "Usage: " + RUN + " <from> <to> [low|high] | " + RUN + " <from> up|down <to> [low|high]");
+        return null;
+    }
+
     // ВВОД ДАННЫХ С ВАЛИДАЦИЕЙ
     // Получение валидного числа от пользователя
     private int getValidNumber(String prompt, int min, int max, int defaultValue) {
@@ -48,11 +247,9 @@ public class UI implements Constants {
             try {
                 Logger.prompt(prompt + " [" + min + "-" + max + ", default: " + defaultValue + "]: ");
 
-                Logger.startInputMode();
-                String input = scanner.nextLine().trim();
-                Logger.endInputMode();
+                String input = trimmed(readLine());
 
-                // Пустой ввод = значение по умолчанию
+                // Пустой ввод (или конец ввода) = значение по умолчанию
                 if (input.isEmpty()) {
                     Logger.info(INPUT, "Using default: " + defaultValue);
                     return defaultValue;
@@ -77,9 +274,7 @@ public class UI implements Constants {
     private Boolean getDirection() {
         Logger.prompt("Direction ('up' or 'down'): ");
 
-        Logger.startInputMode();
-        String input = scanner.nextLine().trim().toLowerCase();
-        Logger.endInputMode();
+        String input = trimmed(readLine()).toLowerCase();
 
         switch (input) {
             case UP_STR:
@@ -117,17 +312,17 @@ public class UI implements Constants {
 
         Boolean direction = getDirection();
         if (direction == null) {
-            return new Command(-1, false); // Invalid command
+            return null; // ошибка уже выведена
         }
 
         // Проверка логики движения
         if (direction == UP && callFloor == maxFloors) {
             Logger.error(INPUT, "Cannot go UP from the top floor");
-            return new Command(-1, false);
+            return null;
         }
         if (direction == DOWN && callFloor == MIN_FLOORS) {
             Logger.error(INPUT, "Cannot go DOWN from the bottom floor");
-            return new Command(-1, false);
+            return null;
         }
 
         // Создаём команду с направлением
@@ -157,7 +352,7 @@ public class UI implements Constants {
 
         if (!correctDirection) {
             Logger.error(INPUT, "Destination floor doesn't match the selected direction");
-            return new Command(-1, false);
+            return null;
         }
 
         // Устанавливаем целевой этаж
@@ -165,7 +360,7 @@ public class UI implements Constants {
 
         if (!command.isValid()) {
             Logger.error(INPUT, "Failed to set destination: " + command.getValidationError());
-            return new Command(-1, false);
+            return null;
         }
 
         return command;
@@ -182,7 +377,7 @@ public class UI implements Constants {
 
         if (callFloor == targetFloor) {
             Logger.error(INPUT, "Current floor and destination cannot be the same");
-            return new Command(-1, -1);
+            return null;
         }
 
         return new Command(callFloor, targetFloor);
@@ -212,6 +407,17 @@ public class UI implements Constants {
         int doorsTime = getValidNumber("Door open time (seconds)", MIN_SPEED, MAX_DOOR_SPEED, DEFAULT_DOOR_SPEED);
         dispatcher.setDoorsSpeed(doorsTime);
 
+        // Экспресс-лифты (свой профиль скорости, ускорения и дверей)
+        int expressCount = getValidNumber("Number of express elevators", 0, elevatorCount, 0);
+        dispatcher.setExpressCount(expressCount);
+
+        // Зонирование (1 - все лифты обслуживают все этажи)
+        int maxZones = dispatcher.getMaxZoneCount();
+        if (maxZones > 1) {
+            int zones = getValidNumber("Number of zones (1 = no zoning)", 1, maxZones, 1);
+            dispatcher.setZoneCount(zones);
+        }
+
         // Режим команд
         selectCommandMode();
 
@@ -241,9 +447,7 @@ public class UI implements Constants {
         while (true) {
             Logger.prompt("Select mode (1 or 2) [default: 2]: ");
 
-            Logger.startInputMode();
-            String input = scanner.nextLine().trim();
-            Logger.endInputMode();
+            String input = trimmed(readLine());
 
             if (input.isEmpty() || input.equals("2") || input.equalsIgnoreCase("internal")) {
                 dispatcher.setCommandMode(Command.Mode.INTERNAL);
@@ -263,10 +467,16 @@ public class UI implements Constants {
     public void printHelp() {
         Logger.printHeader(AVAILABLE_COMMANDS_HEADER);
         Logger.printMenu(new String[] {
-                RUN + " - Request an elevator",
+                RUN + " [<from> <to> | <from> up|down <to>] [low|high] - Request an elevator",
+                SCRIPT + " <file> - Run commands from a file (one per line or separated by ';')",
                 LIST + " - Show all elevators status",
                 INFO + " - Show building parameters",
                 HELP + " - Show this help message",
+                REPLAY + " [seconds] - Rebuild state from the dispatch journal",
+                ENERGY + " - Show energy use per elevator and per passenger",
+                WEIGHTS + " [reload | key=value ...] - Show or change dispatcher scoring weights",
+                WATCH + " [first car] - Live status dashboard, Enter to return",
+                STATS + " [on | off | reset | threads] - Lock waits and hot path latencies",
                 EXIT + " - Shutdown system"
         });
         Logger.printSeparator();
@@ -0,0 +1,317 @@
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Виртуальные часы детерминированного режима
+ *
+ * - Время модели не связано с реальным: оно перескакивает к ближайшему событию
+ * - Потоки модели (лифты и поток, подающий вызовы) выполняются строго по одному:
+ *   ход получает участник с самым ранним временем пробуждения, при равном времени -
+ *   тот, кто раньше встал в очередь (номер события)
+ * - Очередь событий меняет только участник, у которого ход, поэтому порядок выполнения,
+ *   решения диспетчера и лог зависят только от входных данных, а не от планировщика ОС
+ * - Ожидание работы (park/unpark), прерывание и ожидание завершения потока (join)
+ *   тоже проходят через очередь событий
+ * - Сутки модели начинаются с полуночи: timeOfDay() не зависит от часового пояса
+ */
+public final class VirtualClock implements SimulationClock {
+
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    // Участник: поток модели и его место в очереди
+    private static final class Turn {
+        final Thread thread;
+        final Condition granted;
+        Event pending;     // событие пробуждения в очереди (null - выполняется или ждёт без события)
+        boolean finished;
+
+        Turn(Thread thread, Condition granted) {
+            this.thread = thread;
+            this.granted = granted;
+        }
+    }
+
+    private static final class Event implements Comparable<Event> {
+        final long time;
+        final long sequence;
+        final Turn turn;
+
+        Event(long time, long sequence, Turn turn) {
+            this.time = time;
+            this.sequence = sequence;
+            this.turn = turn;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    // Поток, созданный часами: ждёт своего хода до первой строки задачи
+    private final class Participant extends Thread {
+        private final Turn turn;
+
+        Participant(Runnable task, String name, long stackSize) {
+            super(null, task, name, stackSize);
+            this.turn = new Turn(this, lock.newCondition());
+        }
+
+        @Override
+        public void run() {
+            lock.lock();
+            try {
+                awaitTurn(turn);
+            } finally {
+                lock.unlock();
+            }
+            try {
+                super.run();
+            } finally {
+                leave(turn);
+            }
+        }
+
+        // Прерывание (остановка модели) переносит пробуждение участника на текущий момент
+        @Override
+        public void interrupt() {
+            lock.lock();
+            try {
+                wake(turn);
+            } finally {
+                lock.unlock();
+            }
+            super.interrupt();
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private final Map<Thread, Turn> turns = new HashMap<>();
+    private final Map<Object, List<Turn>> parked = new HashMap<>();
+    private volatile long now;
+    private long sequence;
+    private Turn running;
+
+    @Override
+    public long nowMillis() {
+        return now;
+    }
+
+    @Override
+    public LocalTime timeOfDay() {
+        return LocalTime.ofNanoOfDay(Math.floorMod(now, DAY_MILLIS) * 1_000_000L);
+    }
+
+    @Override
+    public boolean isVirtual() {
+        return true;
+    }
+
+    // УЧАСТНИКИ
+    // Текущий поток становится участником (поток, подающий вызовы) и ждёт своего хода
+    public void enter() {
+        lock.lock();
+        try {
+            Turn turn = new Turn(Thread.currentThread(), lock.newCondition());
+            turns.put(turn.thread, turn);
+            if (running == null && events.isEmpty()) {
+                running = turn;
+                return;
+            }
+            schedule(turn, now);
+            if (running == null) {
+                dispatchNext();
+            }
+            awaitTurn(turn);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Текущий поток перестаёт быть участником и передаёт ход
+    public void exit() {
+        Turn turn;
+        lock.lock();
+        try {
+            turn = current();
+        } finally {
+            lock.unlock();
+        }
+        leave(turn);
+    }
+
+    // Поток модели встаёт в очередь в момент создания, в порядке создания
+    @Override
+    public Thread newThread(Runnable task, String name, long stackSize) {
+        lock.lock();
+        try {
+            Participant participant = new Participant(task, name, stackSize);
+            turns.put(participant, participant.turn);
+            schedule(participant.turn, now);
+            return participant;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ОЖИДАНИЕ
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        if (millis <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            Turn turn = current();
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            schedule(turn, now + millis);
+            pass(turn);
+        } finally {
+            lock.unlock();
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    @Override
+    public void park(Object key, long millis) throws InterruptedException {
+        lock.lock();
+        try {
+            Turn turn = current();
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            List<Turn> waiting = parked.computeIfAbsent(key, k -> new ArrayList<>());
+            waiting.add(turn);
+            schedule(turn, now + Math.max(millis, 0));
+            pass(turn);
+
+            // Проснулся по таймауту или прерыванию - убираем себя из ожидающих
+            if (waiting.remove(turn) && waiting.isEmpty()) {
+                parked.remove(key, waiting);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    @Override
+    public void unpark(Object key) {
+        lock.lock();
+        try {
+            List<Turn> waiting = parked.remove(key);
+            if (waiting != null) {
+                for (Turn turn : waiting) {
+                    wake(turn);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Ожидание завершения участника по времени модели; поток вне часов - обычный join
+    @Override
+    public void join(Thread thread, long millis) throws InterruptedException {
+        boolean virtual;
+        lock.lock();
+        try {
+            Turn target = turns.get(thread);
+            virtual = target != null && !target.finished;
+        } finally {
+            lock.unlock();
+        }
+        if (virtual) {
+            park(thread, millis);
+        }
+
+        lock.lock();
+        try {
+            Turn target = turns.get(thread);
+            virtual = target != null && !target.finished;
+        } finally {
+            lock.unlock();
+        }
+        if (!virtual) {
+            thread.join(millis); // задача уже завершена, поток только выходит из run()
+        }
+    }
+
+    // ОЧЕРЕДЬ СОБЫТИЙ (вызывать под локом)
+    private Turn current() {
+        Turn turn = turns.get(Thread.currentThread());
+        if (turn == null || turn != running) {
+            throw new IllegalStateException(Thread.currentThread().getName() + " is not running on the virtual clock");
+        }
+        return turn;
+    }
+
+    private void schedule(Turn turn, long time) {
+        turn.pending = new Event(time, sequence++, turn);
+        events.add(turn.pending);
+    }
+
+    // Пробуждение ждущего участника в текущий момент (после уже стоящих в очереди на этот момент)
+    private void wake(Turn turn) {
+        if (turn.pending != null && events.remove(turn.pending)) {
+            schedule(turn, now);
+        }
+    }
+
+    // Передать ход и дождаться его возвращения
+    private void pass(Turn turn) {
+        running = null;
+        dispatchNext();
+        awaitTurn(turn);
+    }
+
+    private void awaitTurn(Turn turn) {
+        while (running != turn) {
+            turn.granted.awaitUninterruptibly();
+        }
+    }
+
+    private void dispatchNext() {
+        Event next = events.poll();
+        if (next == null) {
+            return;
+        }
+        now = Math.max(now, next.time);
+        next.turn.pending = null;
+        running = next.turn;
+        next.turn.granted.signal();
+    }
+
+    private void leave(Turn turn) {
+        lock.lock();
+        try {
+            turn.finished = true;
+            List<Turn> joiners = parked.remove(turn.thread);
+            if (joiners != null) {
+                for (Turn joiner : joiners) {
+                    wake(joiner);
+                }
+            }
+            if (running == turn) {
+                running = null;
+                dispatchNext();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Слежение за файлом весов диспетчера (NIO WatchService)
+ *
+ * - Наблюдается каталог файла: редакторы часто сохраняют через временный файл и переименование
+ * - При создании или изменении файла веса перечитываются и атомарно подменяются в диспетчере
+ * - Чтение - только после тишины WEIGHTS_SETTLE_MILLIS и когда содержимое файла за это время
+ *   не изменилось: ENTRY_MODIFY приходит и посреди записи, полузаписанный файл не читается
+ * - Ошибка в файле не меняет действующие веса
+ */
+public final class WeightsWatcher implements Runnable, Constants {
+
+    private final Dispatcher dispatcher;
+    private final Path file;
+    private final WatchService watchService;
+
+    private WeightsWatcher(Dispatcher dispatcher, Path file, WatchService watchService) {
+        this.dispatcher = dispatcher;
+        this.file = file;
+        this.watchService = watchService;
+    }
+
+    // Запуск фонового потока слежения
+    public static WeightsWatcher start(Dispatcher dispatcher, Path file) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        WatchService service = FileSystems.getDefault().newWatchService();
+        absolute.getParent().register(service,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        WeightsWatcher watcher = new WeightsWatcher(dispatcher, absolute, service);
+        Thread thread = new Thread(watcher, "Weights-Watcher");
+        thread.setDaemon(true);
+        thread.start();
+        return watcher;
+    }
+
+    @Override
+    public void run() {
+        Path name = file.getFileName();
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (name.equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                if (!key.reset()) {
+                    Logger.error(CONFIG, "Weights directory is no longer accessible: " + file.getParent());
+                    return;
+                }
+                // Одно сохранение даёт несколько событий - перечитываем один раз, когда запись закончилась
+                if (changed) {
+                    if (!awaitStable()) {
+                        return;
+                    }
+                    dispatcher.loadWeights(file);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Ожидание, пока содержимое файла не перестанет меняться; false - каталог больше недоступен
+    private boolean awaitStable() throws InterruptedException {
+        byte[] previous = snapshot();
+        while (true) {
+            if (!settle()) {
+                Logger.error(CONFIG, "Weights directory is no longer accessible: " + file.getParent());
+                return false;
+            }
+            byte[] current = snapshot();
+            if (Arrays.equals(previous, current)) {
+                return true;
+            }
+            previous = current;
+        }
+    }
+
+    // Пауза WEIGHTS_SETTLE_MILLIS; события за это время поглощаются
+    private boolean settle() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WEIGHTS_SETTLE_MILLIS);
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            WatchKey key = watchService.poll(remaining, TimeUnit.NANOSECONDS);
+            if (key == null) {
+                break;
+            }
+            key.pollEvents();
+            if (!key.reset()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Содержимое файла; null - файла нет (например, между удалением и переименованием)
+    private byte[] snapshot() {
+        try {
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            Logger.error(CONFIG, "Cannot close weights watcher: " + e.getMessage());
+        }
+    }
+}